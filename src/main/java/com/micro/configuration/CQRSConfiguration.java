@@ -1,6 +1,8 @@
 package com.micro.configuration;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,19 +10,44 @@ import org.springframework.integration.channel.PublishSubscribeChannel;
 import org.springframework.integration.core.MessagingTemplate;
 import org.springframework.messaging.MessageChannel;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Slf4j
 @Configuration
 @ConditionalOnProperty(prefix = "pattern", name = "cqrs.enabled", havingValue = "true")
 public class CQRSConfiguration {
+    @Value("${pattern.cqrs.channel.async:false}")
+    private boolean asyncChannel;
+
+    private ExecutorService channelExecutor;
+
     @Bean
     public MessagingTemplate messagingTemplate() {
         log.info("Configure CQRS message template");
         return new MessagingTemplate();
     }
 
+    /**
+     * With {@code pattern.cqrs.channel.async} the channel hands every command to a virtual thread instead of running
+     * the handler on the sending thread.
+     * Returns: Command channel
+     */
     @Bean
     public MessageChannel commandChannel() {
+        if (asyncChannel) {
+            log.info("Configure CQRS Command channel: virtual threads");
+            channelExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("command-channel-", 0).factory());
+            return new PublishSubscribeChannel(channelExecutor);
+        }
         log.info("Configure CQRS Command channel");
         return new PublishSubscribeChannel();
     }
+
+    @PreDestroy
+    void destroy() {
+        if (channelExecutor != null) {
+            channelExecutor.close();
+        }
+    }
 }
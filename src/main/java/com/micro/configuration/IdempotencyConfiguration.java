@@ -0,0 +1,50 @@
+package com.micro.configuration;
+
+import com.micro.pattern.idempotency.FileIdempotencyStore;
+import com.micro.pattern.idempotency.IdempotencyStore;
+import com.micro.pattern.idempotency.InMemoryIdempotencyStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Deduplicates commands sent through the {@link com.micro.pattern.command.CommandBus} and Kafka records by TID.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "pattern", name = "idempotency.enabled", havingValue = "true")
+public class IdempotencyConfiguration {
+    @Value("${pattern.idempotency.shards:16}")
+    private int shards;
+    @Value("${pattern.idempotency.max-entries:100000}")
+    private int maxEntries;
+    @Value("${pattern.idempotency.ttl-ms:3600000}")
+    private long ttl;
+    @Value("${pattern.idempotency.persistent.enabled:false}")
+    private boolean persistent;
+    @Value("${pattern.idempotency.persistent.file:${java.io.tmpdir}/idempotency/tid.log}")
+    private String file;
+    @Value("${pattern.idempotency.persistent.flush-interval-ms:1000}")
+    private long flushInterval;
+
+    /**
+     * Default store. Applications may register their own {@link IdempotencyStore} bean to share TIDs between
+     * instances.
+     * Returns: File-backed store when {@code pattern.idempotency.persistent.enabled} is set, otherwise an in-memory store
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public IdempotencyStore idempotencyStore() {
+        if (persistent) {
+            return new FileIdempotencyStore(Path.of(file), shards, maxEntries, Duration.ofMillis(ttl),
+                    Duration.ofMillis(flushInterval));
+        }
+        return new InMemoryIdempotencyStore(shards, maxEntries, Duration.ofMillis(ttl));
+    }
+}
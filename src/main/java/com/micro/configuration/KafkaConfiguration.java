@@ -2,21 +2,41 @@ package com.micro.configuration;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micro.kafka.KafkaRetryMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.classify.BinaryExceptionClassifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.ExceptionClassifier;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
 import org.springframework.util.backoff.BackOff;
 import org.springframework.util.backoff.FixedBackOff;
 
 import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This configuration allows Kafka to retry transactions. By having it, we should always have a configured TID to
  * acknowledge it was already processed.
+ * <p>
+ * Records failing after the retries are published to {@code <topic><kafka.dead-letter.suffix>} when
+ * {@code kafka.dead-letter.enabled} is set. With {@code kafka.retry.non-blocking.enabled}, {@code @KafkaListener}
+ * records are retried through retry topics with exponential delays instead, so the main partitions keep flowing.
  */
 @RequiredArgsConstructor
 @Slf4j
@@ -24,17 +44,57 @@ import java.net.SocketTimeoutException;
 @Configuration
 public class KafkaConfiguration {
     private final ObjectMapper objectMapper;
+    private final ObjectProvider<KafkaGeneralConfiguration> kafkaGeneralConfiguration;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Set<String> deadLetterTopics = ConcurrentHashMap.newKeySet();
     @Value("${kafka.retry.interval}")
     private long retryInterval;
     @Value("${kafka.retry.max-attempts}")
     private long retryMaxAttempts;
+    @Value("${kafka.dead-letter.enabled:false}")
+    private boolean deadLetterEnabled;
+    @Value("${kafka.dead-letter.suffix:-dlt}")
+    private String deadLetterSuffix;
+    @Value("${kafka.retry.non-blocking.initial-interval-ms:1000}")
+    private long nonBlockingInitialInterval;
+    @Value("${kafka.retry.non-blocking.multiplier:2.0}")
+    private double nonBlockingMultiplier;
+    @Value("${kafka.retry.non-blocking.max-interval-ms:60000}")
+    private long nonBlockingMaxInterval;
+    @Value("${kafka.retry.non-blocking.max-attempts:4}")
+    private int nonBlockingMaxAttempts;
+    @Value("${kafka.retry.non-blocking.suffix:-retry}")
+    private String nonBlockingSuffix;
+    @Value("${kafka.retry.non-blocking.topics:}")
+    private List<String> nonBlockingTopics;
+    @Value("${kafka.retry.non-blocking.listener-factory:}")
+    private String nonBlockingListenerFactory;
 
+    private KafkaTemplate<String, Object> deadLetterTemplate;
+
+    /**
+     * Shared by record and batch listener factories. For batch listeners, a
+     * {@link org.springframework.kafka.listener.BatchListenerFailedException} limits retries and recovery to the
+     * failed record and the ones after it.
+     */
     @Bean
-    public DefaultErrorHandler errorHandler() {
+    public DefaultErrorHandler errorHandler(ConsumerRecordRecoverer kafkaRecordRecoverer) {
         log.info("Configure Kafka retry: {} interval -- {} Max Attempts", retryInterval, retryMaxAttempts);
-        BackOff fixedBackOff = new FixedBackOff(retryInterval, retryMaxAttempts);
-        DefaultErrorHandler errorHandler = new DefaultErrorHandler(((consumerRecord, e) -> {
-            // TODO After retries are finished, this should be put in a place or notify
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(kafkaRecordRecoverer, retryBackOff());
+        meterRegistry.ifAvailable(registry -> errorHandler.setRetryListeners(new KafkaRetryMetrics(registry)));
+
+        errorHandler.setClassifications(retryClassifications(), true);
+        return errorHandler;
+    }
+
+    /**
+     * Called with the records failing after the retries: logs them, and publishes them to the dead-letter topic
+     * when enabled, counting them in {@code kafka.dead.letter.records} per source topic. A dead-letter topic is
+     * created before its first record, like the retry topics, so brokers without topic auto-creation accept it.
+     */
+    @Bean
+    public ConsumerRecordRecoverer kafkaRecordRecoverer() {
+        ConsumerRecordRecoverer logRecoverer = (consumerRecord, e) -> {
             String json;
             try {
                 json = objectMapper.writeValueAsString(consumerRecord.value());
@@ -42,10 +102,87 @@ public class KafkaConfiguration {
                 json = consumerRecord.value().toString();
             }
             log.error("Kafka Record retry Error (Can't process): key: {} -- value: {}", consumerRecord.key(), json, e);
-        }), fixedBackOff);
+        };
+        if (!deadLetterEnabled) {
+            return logRecoverer;
+        }
+        log.info("Configure Kafka dead-letter topics: {} suffix", deadLetterSuffix);
+        // The template is resolved on first use, KafkaGeneralConfiguration depends on the error handler
+        DeadLetterPublishingRecoverer deadLetterRecoverer = new DeadLetterPublishingRecoverer(
+                producerRecord -> deadLetterTemplate(),
+                (consumerRecord, e) -> new TopicPartition(consumerRecord.topic() + deadLetterSuffix, -1));
+        return (consumerRecord, e) -> {
+            logRecoverer.accept(consumerRecord, e);
+            createDeadLetterTopic(consumerRecord.topic() + deadLetterSuffix);
+            deadLetterRecoverer.accept(consumerRecord, e);
+            meterRegistry.ifAvailable(registry -> registry.counter("kafka.dead.letter.records", "topic", consumerRecord.topic()).increment());
+        };
+    }
 
-        errorHandler.addRetryableExceptions(SocketTimeoutException.class);
-        errorHandler.addNotRetryableExceptions(NullPointerException.class);
-        return errorHandler;
+    /**
+     * Blocking retries between deliveries of a failed record
+     */
+    public BackOff retryBackOff() {
+        return new FixedBackOff(retryInterval, retryMaxAttempts);
+    }
+
+    /**
+     * Exceptions retried by the error handler, for listeners retrying records themselves
+     */
+    public BinaryExceptionClassifier retryClassifier() {
+        BinaryExceptionClassifier classifier = new BinaryExceptionClassifier(retryClassifications(), true);
+        classifier.setTraverseCauses(true);
+        return classifier;
+    }
+
+    private Map<Class<? extends Throwable>, Boolean> retryClassifications() {
+        Map<Class<? extends Throwable>, Boolean> classifications = new HashMap<>();
+        ExceptionClassifier.defaultFatalExceptionsList().forEach(type -> classifications.put(type, false));
+        classifications.put(SocketTimeoutException.class, true);
+        classifications.put(NullPointerException.class, false);
+        return classifications;
+    }
+
+    /**
+     * Non-blocking retries for {@code @KafkaListener} endpoints: a failed record is published to a retry topic per
+     * delay and consumed again once the delay elapsed, then to the dead-letter topic.
+     * {@code kafka.retry.non-blocking.topics} limits it to some topics, and
+     * {@code kafka.retry.non-blocking.listener-factory} names the container factory bean of the retry consumers.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "kafka", name = "retry.non-blocking.enabled", havingValue = "true")
+    public RetryTopicConfiguration retryTopicConfiguration() {
+        log.info("Configure Kafka non-blocking retry: {} ms initial interval -- {} multiplier -- {} ms max interval -- {} Max Attempts",
+                nonBlockingInitialInterval, nonBlockingMultiplier, nonBlockingMaxInterval, nonBlockingMaxAttempts);
+        RetryTopicConfigurationBuilder builder = RetryTopicConfigurationBuilder.newInstance()
+                .exponentialBackoff(nonBlockingInitialInterval, nonBlockingMultiplier, nonBlockingMaxInterval)
+                .maxAttempts(nonBlockingMaxAttempts)
+                .retryTopicSuffix(nonBlockingSuffix)
+                .dltSuffix(deadLetterSuffix)
+                .autoCreateTopicsWith(kafkaGeneralConfiguration.getObject().getPartitions(), (short) -1)
+                .notRetryOn(NullPointerException.class);
+        if (!nonBlockingTopics.isEmpty()) {
+            builder.includeTopics(nonBlockingTopics);
+        }
+        if (!nonBlockingListenerFactory.isEmpty()) {
+            builder.listenerFactory(nonBlockingListenerFactory);
+        }
+        return builder.create(deadLetterTemplate());
+    }
+
+    private void createDeadLetterTopic(String topic) {
+        if (deadLetterTopics.contains(topic)) {
+            return;
+        }
+        log.info("Configure Kafka dead-letter topic: {}", topic);
+        kafkaGeneralConfiguration.getObject().createTopic(topic);
+        deadLetterTopics.add(topic);
+    }
+
+    private synchronized KafkaTemplate<String, Object> deadLetterTemplate() {
+        if (deadLetterTemplate == null) {
+            deadLetterTemplate = kafkaGeneralConfiguration.getObject().deadLetterKafkaTemplate();
+        }
+        return deadLetterTemplate;
     }
 }
@@ -1,34 +1,64 @@
 package com.micro.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.micro.kafka.InstrumentedReplyingKafkaTemplate;
+import com.micro.kafka.KafkaFactoryRegistry;
+import com.micro.kafka.KafkaProducerProfile;
+import com.micro.kafka.KeyOrderedMessageListener;
+import com.micro.kafka.KafkaReplyMode;
+import com.micro.kafka.KafkaValueDeserializer;
+import com.micro.kafka.KafkaValueFormat;
+import com.micro.kafka.KafkaValueSerializer;
+import com.micro.kafka.ReplyCorrelation;
+import com.micro.kafka.ReplyFilteringDeserializer;
+import com.micro.pattern.idempotency.IdempotencyStore;
+import com.micro.pattern.idempotency.IdempotentRecordInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.CommonClientConfigs;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.OffsetResetStrategy;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.config.SaslConfigs;
 import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.support.TopicPartitionOffset;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.lang.NonNull;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 @RequiredArgsConstructor
 @Slf4j
@@ -36,7 +66,11 @@ import java.util.Map;
 @Configuration
 public class KafkaGeneralConfiguration {
     private final DefaultErrorHandler errorHandler;
+    private final KafkaConfiguration kafkaConfiguration;
     private final ObjectMapper objectMapper;
+    private final ObjectProvider<IdempotencyStore> idempotencyStore;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ApplicationContext applicationContext;
     @Value("${kafka.trusted-packages}")
     private String trustedPackages;
     @Value("${kafka.bootstrap-server}")
@@ -60,6 +94,55 @@ public class KafkaGeneralConfiguration {
     private int reconnectAttempts;
     @Value("${kafka.reconnect.ms.max}")
     private int reconnectMax;
+    @Value("${kafka.listener.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+    @Value("${kafka.listener.batch.fetch-min-bytes:1}")
+    private int batchFetchMinBytes;
+    @Value("${kafka.listener.batch.fetch-max-wait-ms:500}")
+    private int batchFetchMaxWait;
+    @Value("${kafka.listener.virtual-threads:false}")
+    private boolean listenerVirtualThreads;
+    @Value("${kafka.listener.key-ordered.max-in-flight:256}")
+    private int keyOrderedMaxInFlight;
+    @Value("${kafka.listener.key-ordered.virtual-threads:true}")
+    private boolean keyOrderedVirtualThreads;
+    @Value("${kafka.listener.key-ordered.pool-size:0}")
+    private int keyOrderedPoolSize;
+    @Value("${pattern.idempotency.kafka.header:tid}")
+    private String tidHeader;
+    @Getter
+    @Value("${kafka.producer.profile:DEFAULT}")
+    private KafkaProducerProfile producerProfile;
+    @Value("${kafka.reply.mode:SHARED}")
+    private KafkaReplyMode replyMode;
+    @Value("${kafka.reply.partition:#{null}}")
+    private Integer replyPartition;
+    @Value("${kafka.reply.instance-id:#{null}}")
+    private String replyInstanceId;
+    @Value("${kafka.value-format:JSON}")
+    private KafkaValueFormat valueFormat;
+    @Value("${kafka.producer.batch-size:#{null}}")
+    private Integer producerBatchSize;
+    @Value("${kafka.producer.linger-ms:#{null}}")
+    private Integer producerLingerMs;
+    @Value("${kafka.producer.compression-type:#{null}}")
+    private String producerCompressionType;
+    @Value("${kafka.producer.acks:#{null}}")
+    private String producerAcks;
+    @Value("${kafka.producer.enable-idempotence:#{null}}")
+    private Boolean producerIdempotence;
+    @Value("${kafka.producer.max-in-flight:#{null}}")
+    private Integer producerMaxInFlight;
+    @Value("${kafka.producer.transaction-id-prefix:${spring.application.name:micro}-tx-}")
+    private String transactionIdPrefix;
+    private final ReplyCorrelation replyCorrelation = new ReplyCorrelation();
+    private AsyncTaskExecutor listenerTaskExecutor;
+
+    private record ProducerKey(String kind, KafkaProducerProfile profile, KafkaValueFormat format) {
+    }
+
+    private record ConsumerKey(String kind, String groupId, Class<?> defaultType, KafkaValueFormat format) {
+    }
 
     @Bean
     public <T> JsonSerializer<T> jsonSerializer() {
@@ -71,6 +154,15 @@ public class KafkaGeneralConfiguration {
         return new JsonDeserializer<>(objectMapper);
     }
 
+    /**
+     * Factories returned by the {@code *FactoryPrepared} methods, shared by the callers asking for the same settings
+     * and destroyed on shutdown. Their clients report to the {@link MeterRegistry} when there is one
+     */
+    @Bean
+    public KafkaFactoryRegistry kafkaFactoryRegistry() {
+        return new KafkaFactoryRegistry(meterRegistry.getIfAvailable());
+    }
+
     /**
      * Enable feature to create topics in runtime
      * Returns: Kafka Admin Bean
@@ -85,12 +177,93 @@ public class KafkaGeneralConfiguration {
         return new KafkaAdmin(configs);
     }
 
+    /**
+     * Creates the topic with {@code kafka.topic.partitions} partitions and the broker default replication, unless it
+     * already exists
+     */
+    public void createTopic(String topic) {
+        kafkaAdmin().createOrModifyTopics(TopicBuilder.name(topic)
+                .partitions(partitions)
+                .configs(topicCreationConfiguration())
+                .build());
+    }
+
     public <T> ProducerFactory<String, T> producerFactoryPrepared() {
-        return new DefaultKafkaProducerFactory<>(producerConfig(), new StringSerializer(), jsonSerializer());
+        return producerFactoryPrepared(producerProfile);
+    }
+
+    public <T> ProducerFactory<String, T> producerFactoryPrepared(KafkaProducerProfile profile) {
+        return producerFactoryPrepared(profile, valueFormat);
+    }
+
+    /**
+     * Producer factory for the given profile, writing values in the given format. {@link KafkaProducerProfile#EXACTLY_ONCE}
+     * factories are transactional, using {@code kafka.producer.transaction-id-prefix}, which must be unique per
+     * application instance.
+     */
+    public <T> ProducerFactory<String, T> producerFactoryPrepared(KafkaProducerProfile profile, KafkaValueFormat format) {
+        return kafkaFactoryRegistry().producerFactory(new ProducerKey("value", profile, format), () -> {
+            log.info("Configure producer value format: {}", format);
+            DefaultKafkaProducerFactory<String, T> producerFactory = new DefaultKafkaProducerFactory<>(producerConfig(profile),
+                    new StringSerializer(), new KafkaValueSerializer<>(format, objectMapper));
+            if (profile.isTransactional()) {
+                log.info("Configure transactional producer: {}", transactionIdPrefix);
+                producerFactory.setTransactionIdPrefix(transactionIdPrefix);
+            }
+            return producerFactory;
+        });
     }
 
     public <T> ConsumerFactory<String, T> consumerFactoryPrepared(String groupId, @NonNull Class<T> defaultType) {
-        return new DefaultKafkaConsumerFactory<>(consumerConfig(groupId, defaultType), new StringDeserializer(), jsonDeserializer());
+        return consumerFactoryPrepared(groupId, defaultType, valueFormat);
+    }
+
+    /**
+     * Consumer factory decoding values in the format announced by each record
+     * @param format Format of the records without format header
+     */
+    public <T> ConsumerFactory<String, T> consumerFactoryPrepared(String groupId, @NonNull Class<T> defaultType, KafkaValueFormat format) {
+        return kafkaFactoryRegistry().consumerFactory(new ConsumerKey("record", groupId, defaultType, format),
+                () -> new DefaultKafkaConsumerFactory<>(consumerConfig(groupId, defaultType), new StringDeserializer(),
+                        new KafkaValueDeserializer<>(format, objectMapper)));
+    }
+
+    public <T> ConsumerFactory<String, T> replyConsumerFactoryPrepared(String groupId, @NonNull Class<T> defaultType) {
+        return replyConsumerFactoryPrepared(groupId, defaultType, valueFormat);
+    }
+
+    /**
+     * Consumer factory for reply containers. Replies correlated by other instances of a shared reply topic are
+     * dropped before their value is decoded.
+     */
+    public <T> ConsumerFactory<String, T> replyConsumerFactoryPrepared(String groupId, @NonNull Class<T> defaultType, KafkaValueFormat format) {
+        return kafkaFactoryRegistry().consumerFactory(new ConsumerKey("reply", groupId, defaultType, format),
+                () -> new DefaultKafkaConsumerFactory<>(consumerConfig(groupId, defaultType), new StringDeserializer(),
+                        new ReplyFilteringDeserializer<>(new KafkaValueDeserializer<>(format, objectMapper), replyCorrelation)));
+    }
+
+    public <T> ConsumerFactory<String, T> batchConsumerFactoryPrepared(String groupId, @NonNull Class<T> defaultType) {
+        return batchConsumerFactoryPrepared(groupId, defaultType, valueFormat);
+    }
+
+    public <T> ConsumerFactory<String, T> batchConsumerFactoryPrepared(String groupId, @NonNull Class<T> defaultType, KafkaValueFormat format) {
+        return kafkaFactoryRegistry().consumerFactory(new ConsumerKey("batch", groupId, defaultType, format),
+                () -> new DefaultKafkaConsumerFactory<>(batchConsumerConfig(groupId, defaultType), new StringDeserializer(),
+                        new KafkaValueDeserializer<>(format, objectMapper)));
+    }
+
+    /**
+     * Batch configuration builder, tuned with {@code kafka.listener.batch.*}
+     * @return Consumer configuration for batch listeners
+     */
+    public <T> Map<String, Object> batchConsumerConfig(String groupId, @NonNull Class<T> defaultType) {
+        log.info("Configure batch consumer: {} max poll records -- {} fetch min bytes -- {} ms fetch max wait",
+                batchMaxPollRecords, batchFetchMinBytes, batchFetchMaxWait);
+        Map<String, Object> config = consumerConfig(groupId, defaultType);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchFetchMinBytes);
+        config.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchFetchMaxWait);
+        return config;
     }
 
     /**
@@ -107,28 +280,96 @@ public class KafkaGeneralConfiguration {
      * @return Default Producer configuration
      */
     public Map<String, Object> producerConfig() {
+        return producerConfig(producerProfile);
+    }
+
+    /**
+     * Profile configuration builder
+     * @return Producer configuration of the profile, with the {@code kafka.producer.*} overrides
+     */
+    public Map<String, Object> producerConfig(KafkaProducerProfile profile) {
         log.info("Configure Request Size: {}", messageBytesSize);
-        return producerJSONConfig();
+        return producerJSONConfig(profile);
+    }
+
+    public <T> KafkaTemplate<String, T> kafkaTemplate(KafkaProducerProfile profile, String defaultTopic) {
+        return kafkaTemplate(this.<T>producerFactoryPrepared(profile), defaultTopic);
     }
 
     public <T> KafkaTemplate<String, T> kafkaTemplate(ProducerFactory<String, T> producerFactory, String defaultTopic) {
         KafkaTemplate<String, T> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        kafkaTemplate.setApplicationContext(applicationContext);
         kafkaTemplate.setDefaultTopic(defaultTopic);
         return kafkaTemplate;
     }
 
+    /**
+     * Template publishing failed records to dead-letter and retry topics. Values keep the form they were consumed in:
+     * byte arrays are published as-is, anything else as JSON, replacing the format header of the original record.
+     * It never runs in a transaction, whatever the profile.
+     */
+    public KafkaTemplate<String, Object> deadLetterKafkaTemplate() {
+        ProducerFactory<String, Object> producerFactory = kafkaFactoryRegistry().producerFactory(
+                new ProducerKey("dead-letter", producerProfile, KafkaValueFormat.JSON), () -> {
+                    Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+                    serializers.put(byte[].class, new ByteArraySerializer());
+                    serializers.put(Object.class, new KafkaValueSerializer<>(KafkaValueFormat.JSON, objectMapper));
+                    return new DefaultKafkaProducerFactory<>(producerConfig(), new StringSerializer(),
+                            new DelegatingByTypeSerializer(serializers, true));
+                });
+        return new KafkaTemplate<>(producerFactory);
+    }
+
     public <T, R> ReplyingKafkaTemplate<String, T, R> replyingKafkaTemplate(ProducerFactory<String, T> producer,
                                                                             ConcurrentMessageListenerContainer<String, R> concurrentMessageListenerContainer) {
-        ReplyingKafkaTemplate<String, T, R> replyingKafkaTemplate = new ReplyingKafkaTemplate<>(producer, concurrentMessageListenerContainer);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        ReplyingKafkaTemplate<String, T, R> replyingKafkaTemplate = registry == null
+                ? new ReplyingKafkaTemplate<>(producer, concurrentMessageListenerContainer)
+                : new InstrumentedReplyingKafkaTemplate<>(producer, concurrentMessageListenerContainer, registry);
+        replyingKafkaTemplate.setApplicationContext(applicationContext);
         replyingKafkaTemplate.setDefaultReplyTimeout(Duration.ofMillis(timeout));
-        replyingKafkaTemplate.setSharedReplyTopic(true);
+        replyingKafkaTemplate.setSharedReplyTopic(replyMode == KafkaReplyMode.SHARED);
+        replyingKafkaTemplate.setCorrelationIdStrategy(replyCorrelation::next);
         return replyingKafkaTemplate;
     }
 
+    /**
+     * Reply container of the {@code kafka.reply.mode}. With a single reply partition or topic, the
+     * {@link ReplyingKafkaTemplate} advertises it in the {@code REPLY_PARTITION}/{@code REPLY_TOPIC} headers of the
+     * requests, so responders reply to this instance only.
+     *
+     * @throws IllegalStateException When {@code kafka.reply.partition} is missing in {@code PARTITION} mode, or
+     *                               {@code kafka.reply.instance-id} in {@code TOPIC} mode
+     */
     public <T> ConcurrentMessageListenerContainer<String, T> replyContainer(String group, String topicResponse, ConcurrentKafkaListenerContainerFactory<String, T> containerFactory) {
-        ConcurrentMessageListenerContainer<String, T> repliesContainer = containerFactory.createContainer(topicResponse);
+        log.info("Configure reply container: {} mode", replyMode);
+        ConcurrentMessageListenerContainer<String, T> repliesContainer = switch (replyMode) {
+            case SHARED -> containerFactory.createContainer(topicResponse);
+            case PARTITION -> {
+                if (replyPartition == null) {
+                    throw new IllegalStateException("kafka.reply.partition is required in PARTITION reply mode, "
+                            + "every instance needs its own partition");
+                }
+                yield containerFactory.createContainer(new TopicPartitionOffset(topicResponse, replyPartition));
+            }
+            case TOPIC -> {
+                if (replyInstanceId == null || replyInstanceId.isBlank()) {
+                    throw new IllegalStateException("kafka.reply.instance-id is required in TOPIC reply mode, "
+                            + "it must be stable across restarts of the instance");
+                }
+                String instanceTopic = topicResponse + "." + replyInstanceId;
+                kafkaAdmin().createOrModifyTopics(TopicBuilder.name(instanceTopic)
+                        .partitions(1)
+                        .configs(topicCreationConfiguration())
+                        .build());
+                yield containerFactory.createContainer(instanceTopic);
+            }
+        };
         repliesContainer.getContainerProperties().setMissingTopicsFatal(true);
         repliesContainer.getContainerProperties().setGroupId(group);
+        if (listenerVirtualThreads) {
+            repliesContainer.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor());
+        }
         repliesContainer.setAutoStartup(true);
         return repliesContainer;
     }
@@ -142,28 +383,125 @@ public class KafkaGeneralConfiguration {
      * @return ConcurrentKafkaListenerContainerFactory
      */
     public <T> ConcurrentKafkaListenerContainerFactory<String, T> concurrentKafkaListenerContainerFactory(String group, ConsumerFactory<String, T> consumerFactory) {
-        ConcurrentKafkaListenerContainerFactory<String, T> factory = new ConcurrentKafkaListenerContainerFactory<>();
-        factory.getContainerProperties().setMissingTopicsFatal(true);
-        factory.getContainerProperties().setGroupId(group);
-        factory.setConsumerFactory(consumerFactory);
-        factory.setConcurrency(listenerConcurrency);
-        factory.setMissingTopicsFatal(true);
-        factory.setCommonErrorHandler(errorHandler);
+        ConcurrentKafkaListenerContainerFactory<String, T> factory = listenerContainerFactory(group, consumerFactory);
+        addIdempotency(factory);
         return factory;
     }
 
     public <T, R> ConcurrentKafkaListenerContainerFactory<String, T> concurrentKafkaListenerContainerFactory(String group, ConsumerFactory<String, T> consumerFactory,
                                                                                                              KafkaTemplate<String, R> replyKafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<String, T> factory = listenerContainerFactory(group, consumerFactory);
+        factory.setReplyTemplate(replyKafkaTemplate);
+        addIdempotency(factory);
+        return factory;
+    }
+
+    /**
+     * Listener factory delivering each poll as a {@code List} of records. Use with
+     * {@link #batchConsumerFactoryPrepared(String, Class)} to tune the batch size.
+     * <p>
+     * When a record fails, the listener should throw a {@link BatchListenerFailedException} with its index: the
+     * offsets of the records before it are committed, and only the failed record and the ones after it are retried,
+     * the failed record being recovered once retries are exhausted. Any other exception retries the whole batch.
+     *
+     * @param group           GroupId
+     * @param consumerFactory - Consumer Factory
+     * @param <T>             - Data type of class parsing consumer
+     * @return ConcurrentKafkaListenerContainerFactory with batch listeners
+     */
+    public <T> ConcurrentKafkaListenerContainerFactory<String, T> batchConcurrentKafkaListenerContainerFactory(String group, ConsumerFactory<String, T> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, T> factory = listenerContainerFactory(group, consumerFactory);
+        factory.setBatchListener(true);
+        return factory;
+    }
+
+    /**
+     * Listener factory for {@link KeyOrderedMessageListener}s: records are acknowledged one by one, out of order, and
+     * offsets are committed once every earlier record of the partition was acknowledged. Containers are created with
+     * {@code createContainer(topics)} and given to {@link #keyOrderedListener}.
+     * <p>
+     * The TID interceptor is not installed, records are still being handled when the listener returns.
+     *
+     * @param group           GroupId
+     * @param consumerFactory - Consumer Factory
+     * @param <T>             - Data type of class parsing consumer
+     * @return ConcurrentKafkaListenerContainerFactory with manual asynchronous acknowledgments
+     */
+    public <T> ConcurrentKafkaListenerContainerFactory<String, T> keyOrderedKafkaListenerContainerFactory(String group, ConsumerFactory<String, T> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, T> factory = listenerContainerFactory(group, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+
+    /**
+     * Listener of the container handling up to {@code kafka.listener.key-ordered.max-in-flight} records at once, on
+     * virtual threads or on a pool of {@code kafka.listener.key-ordered.pool-size} threads. Failed records are retried
+     * with the {@code kafka.retry.*} back off when the error handler would retry them, then recovered like the other
+     * listeners; the container is stopped when the recovery fails. The listener must be closed, or registered as a
+     * bean, to stop its threads.
+     *
+     * @param container Container created by {@link #keyOrderedKafkaListenerContainerFactory}, the listener is set up
+     *                  on it
+     */
+    public <T> KeyOrderedMessageListener<String, T> keyOrderedListener(MessageListenerContainer container,
+                                                                       Consumer<ConsumerRecord<String, T>> handler) {
+        ExecutorService executorService;
+        if (keyOrderedVirtualThreads) {
+            log.info("Configure key-ordered listener: virtual threads -- {} max in flight", keyOrderedMaxInFlight);
+            executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kafka-worker-", 0).factory());
+        } else {
+            int threads = keyOrderedPoolSize > 0 ? keyOrderedPoolSize : Runtime.getRuntime().availableProcessors();
+            log.info("Configure key-ordered listener: {} platform threads -- {} max in flight", threads, keyOrderedMaxInFlight);
+            executorService = Executors.newFixedThreadPool(threads);
+        }
+        KeyOrderedMessageListener<String, T> listener = new KeyOrderedMessageListener<>(handler,
+                kafkaConfiguration.kafkaRecordRecoverer(), kafkaConfiguration.retryBackOff(),
+                kafkaConfiguration.retryClassifier(), executorService, container, keyOrderedMaxInFlight);
+        container.setupMessageListener(listener);
+        return listener;
+    }
+
+    /**
+     * Settings shared by every listener factory. With {@code kafka.listener.virtual-threads}, the consumer threads of
+     * the containers are virtual threads.
+     */
+    private <T> ConcurrentKafkaListenerContainerFactory<String, T> listenerContainerFactory(String group, ConsumerFactory<String, T> consumerFactory) {
         ConcurrentKafkaListenerContainerFactory<String, T> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.getContainerProperties().setMissingTopicsFatal(true);
         factory.getContainerProperties().setGroupId(group);
         factory.setConsumerFactory(consumerFactory);
+        factory.setConcurrency(listenerConcurrency);
         factory.setMissingTopicsFatal(true);
-        factory.setReplyTemplate(replyKafkaTemplate);
         factory.setCommonErrorHandler(errorHandler);
+        // Containers time their listener in spring.kafka.listener through the MeterRegistry of the context
+        factory.setApplicationContext(applicationContext);
+        if (listenerVirtualThreads) {
+            factory.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor());
+        }
         return factory;
     }
 
+    private synchronized AsyncTaskExecutor listenerTaskExecutor() {
+        if (listenerTaskExecutor == null) {
+            log.info("Configure Kafka listener executor: virtual threads");
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            executor.setVirtualThreads(true);
+            listenerTaskExecutor = executor;
+        }
+        return listenerTaskExecutor;
+    }
+
+    /**
+     * Skips records whose TID was already processed when an {@link IdempotencyStore} is configured
+     */
+    private <T> void addIdempotency(ConcurrentKafkaListenerContainerFactory<String, T> factory) {
+        idempotencyStore.ifAvailable(store -> {
+            log.info("Configure Kafka idempotency: {} header", tidHeader);
+            factory.setRecordInterceptor(new IdempotentRecordInterceptor<>(store, tidHeader));
+        });
+    }
+
     /**
      * JSON Consumer Configuration
      *
@@ -191,13 +529,22 @@ public class KafkaGeneralConfiguration {
     }
 
     public Map<String, Object> producerJSONConfig() {
-        log.info("Configure JSON Producer");
+        return producerJSONConfig(producerProfile);
+    }
+
+    public Map<String, Object> producerJSONConfig(KafkaProducerProfile profile) {
+        log.info("Configure JSON Producer: {} profile", profile);
         Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        config.put(ProducerConfig.BATCH_SIZE_CONFIG, 0);
-        config.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+        profile.apply(config);
+        putIfPresent(config, ProducerConfig.BATCH_SIZE_CONFIG, producerBatchSize);
+        putIfPresent(config, ProducerConfig.LINGER_MS_CONFIG, producerLingerMs);
+        putIfPresent(config, ProducerConfig.COMPRESSION_TYPE_CONFIG, producerCompressionType);
+        putIfPresent(config, ProducerConfig.ACKS_CONFIG, producerAcks);
+        putIfPresent(config, ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, producerIdempotence);
+        putIfPresent(config, ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, producerMaxInFlight);
         config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, messageBufferMemory);
         config.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, messageBytesSize);
         config.put(ProducerConfig.RECONNECT_BACKOFF_MS_CONFIG, reconnectAttempts);
@@ -206,6 +553,12 @@ public class KafkaGeneralConfiguration {
         return config;
     }
 
+    private static void putIfPresent(Map<String, Object> config, String key, Object value) {
+        if (value != null) {
+            config.put(key, value);
+        }
+    }
+
     public Map<String, String> topicCreationConfiguration() {
         Map<String, String> config = new HashMap<>();
         config.put(TopicConfig.MAX_MESSAGE_BYTES_CONFIG, messageBytesSize + "");
@@ -0,0 +1,42 @@
+package com.micro.configuration;
+
+import com.micro.pattern.saga.journal.MappedSagaJournal;
+import com.micro.pattern.saga.journal.NoOpSagaJournal;
+import com.micro.pattern.saga.journal.SagaJournal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "pattern", name = "saga.enabled", havingValue = "true")
+public class SagaConfiguration {
+    @Value("${pattern.saga.journal.enabled:false}")
+    private boolean journalEnabled;
+    @Value("${pattern.saga.journal.directory:${java.io.tmpdir}/saga-journal}")
+    private String journalDirectory;
+    @Value("${pattern.saga.journal.segment-size:67108864}")
+    private int journalSegmentSize;
+    @Value("${pattern.saga.journal.flush-interval-ms:10}")
+    private long journalFlushInterval;
+
+    /**
+     * Default journal. Applications may register their own {@link SagaJournal} bean to store progress elsewhere.
+     * Returns: Memory-mapped journal when {@code pattern.saga.journal.enabled} is set, otherwise a no-op journal
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public SagaJournal sagaJournal() {
+        if (!journalEnabled) {
+            log.info("SAGA journal Disabled");
+            return new NoOpSagaJournal();
+        }
+        return new MappedSagaJournal(Path.of(journalDirectory), journalSegmentSize, Duration.ofMillis(journalFlushInterval));
+    }
+}
@@ -1,17 +1,23 @@
 package com.micro.configuration;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.sftp.client.SftpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.annotation.IntegrationComponentScan;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.channel.PublishSubscribeChannel;
 import org.springframework.integration.config.EnableIntegration;
 import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.session.CachingSessionFactory;
 import org.springframework.integration.sftp.outbound.SftpMessageHandler;
 import org.springframework.integration.sftp.session.DefaultSftpSessionFactory;
+import org.springframework.integration.sftp.session.SftpRemoteFileTemplate;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 
@@ -29,10 +35,28 @@ public class SecureFTPConfiguration {
     private String sftpUser;
     @Value("${sftp.password}")
     private String sftpPassword;
+    @Value("${sftp.pool.size:10}")
+    private int poolSize;
+    @Value("${sftp.pool.wait-timeout-ms:30000}")
+    private long poolWaitTimeout;
+    @Value("${sftp.pool.test-session:true}")
+    private boolean poolTestSession;
 
+    /**
+     * Opens a new SSH session per call for {@link #sftpCachingSessionFactory()}, not exposed as a bean
+     */
+    private DefaultSftpSessionFactory pooledSessionFactory;
+
+    /**
+     * Shares a single SSH session between its callers
+     */
     @Bean
     public DefaultSftpSessionFactory sftpSessionFactory() {
-        DefaultSftpSessionFactory sftpSessionFactory = new DefaultSftpSessionFactory(true);
+        return sftpSessionFactory(true);
+    }
+
+    private DefaultSftpSessionFactory sftpSessionFactory(boolean isSharedSession) {
+        DefaultSftpSessionFactory sftpSessionFactory = new DefaultSftpSessionFactory(isSharedSession);
         sftpSessionFactory.setHost(sftpHost);
         sftpSessionFactory.setPort(sftpPort);
         sftpSessionFactory.setUser(sftpUser);
@@ -41,6 +65,35 @@ public class SecureFTPConfiguration {
         return sftpSessionFactory;
     }
 
+    /**
+     * Pool of at most {@code sftp.pool.size} sessions. A caller waits up to {@code sftp.pool.wait-timeout-ms} for a
+     * free session; with {@code sftp.pool.test-session}, an idle session is checked before being handed out and
+     * replaced when its connection dropped.
+     */
+    @Bean
+    @Primary
+    public CachingSessionFactory<SftpClient.DirEntry> sftpCachingSessionFactory() {
+        log.info("Configure SFTP pool: {} sessions -- {} ms wait timeout -- test session {}", poolSize, poolWaitTimeout, poolTestSession);
+        pooledSessionFactory = sftpSessionFactory(false);
+        CachingSessionFactory<SftpClient.DirEntry> cachingSessionFactory = new CachingSessionFactory<>(pooledSessionFactory, poolSize);
+        cachingSessionFactory.setSessionWaitTimeout(poolWaitTimeout);
+        cachingSessionFactory.setTestSession(poolTestSession);
+        return cachingSessionFactory;
+    }
+
+    /**
+     * Template on the pool writing to the directory of the {@link FileHeaders#REMOTE_DIRECTORY} header, created when
+     * missing
+     */
+    @Bean
+    public SftpRemoteFileTemplate sftpRemoteFileTemplate() {
+        SftpRemoteFileTemplate sftpRemoteFileTemplate = new SftpRemoteFileTemplate(sftpCachingSessionFactory());
+        sftpRemoteFileTemplate.setAutoCreateDirectory(true);
+        sftpRemoteFileTemplate.setRemoteDirectoryExpression(new SpelExpressionParser()
+                .parseExpression("headers['" + FileHeaders.REMOTE_DIRECTORY + "']"));
+        return sftpRemoteFileTemplate;
+    }
+
     @Bean
     public MessageChannel sftpChannel() {
         return new PublishSubscribeChannel();
@@ -49,11 +102,18 @@ public class SecureFTPConfiguration {
     @Bean
     @ServiceActivator(inputChannel = "sftpChannel")
     public MessageHandler sftpMessageHandler() {
-        SftpMessageHandler sftpMessageHandler = new SftpMessageHandler(sftpSessionFactory());
+        SftpMessageHandler sftpMessageHandler = new SftpMessageHandler(sftpCachingSessionFactory());
         sftpMessageHandler.setAutoCreateDirectory(true);
         sftpMessageHandler.setRemoteDirectoryExpressionString("headers".concat(FileHeaders.REMOTE_DIRECTORY));
         sftpMessageHandler.setFileNameGenerator(message -> (String) message.getHeaders().get(FileHeaders.FILENAME));
         return sftpMessageHandler;
     }
 
+    @PreDestroy
+    void destroy() throws Exception {
+        if (pooledSessionFactory != null) {
+            pooledSessionFactory.destroy();
+        }
+    }
+
 }
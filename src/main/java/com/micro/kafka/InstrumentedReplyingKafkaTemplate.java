@@ -0,0 +1,54 @@
+package com.micro.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.GenericMessageListenerContainer;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ReplyingKafkaTemplate} timing each request until its reply arrives, in the {@code kafka.reply.latency}
+ * timer tagged with the request topic and the outcome: {@code success}, {@code timeout} or {@code failure}. The timers
+ * of a topic are registered on its first request.
+ */
+public class InstrumentedReplyingKafkaTemplate<K, V, R> extends ReplyingKafkaTemplate<K, V, R> {
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ReplyTimers> timers = new ConcurrentHashMap<>();
+
+    private record ReplyTimers(Timer success, Timer timeout, Timer failure) {
+    }
+
+    public InstrumentedReplyingKafkaTemplate(ProducerFactory<K, V> producerFactory,
+                                             GenericMessageListenerContainer<K, R> replyContainer, MeterRegistry meterRegistry) {
+        super(producerFactory, replyContainer);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public RequestReplyFuture<K, V, R> sendAndReceive(ProducerRecord<K, V> record, Duration replyTimeout) {
+        ReplyTimers topicTimers = timers.computeIfAbsent(record.topic(), this::replyTimers);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        RequestReplyFuture<K, V, R> future = super.sendAndReceive(record, replyTimeout);
+        future.whenComplete((reply, e) -> sample.stop(e == null ? topicTimers.success()
+                : e instanceof KafkaReplyTimeoutException ? topicTimers.timeout() : topicTimers.failure()));
+        return future;
+    }
+
+    private ReplyTimers replyTimers(String topic) {
+        return new ReplyTimers(timer(topic, "success"), timer(topic, "timeout"), timer(topic, "failure"));
+    }
+
+    private Timer timer(String topic, String outcome) {
+        return Timer.builder("kafka.reply.latency")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
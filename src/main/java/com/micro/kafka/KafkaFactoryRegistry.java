@@ -0,0 +1,74 @@
+package com.micro.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Producer and consumer factories shared by every template and container asking for the same settings. A producer
+ * factory shares one producer, with its network thread, buffer memory and connections, across all the value types
+ * and topics it is used for. Factories are destroyed with the registry, callers must not reset or reconfigure them.
+ * <p>
+ * With a {@link MeterRegistry}, the metrics of the Kafka clients created by the factories are bound to it: send
+ * latency and batch size of producers, poll time, fetch latency and per-partition lag of consumers.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaFactoryRegistry implements DisposableBean {
+    private final MeterRegistry meterRegistry;
+    private final Map<Object, ProducerFactory<?, ?>> producerFactories = new ConcurrentHashMap<>();
+    private final Map<Object, ConsumerFactory<?, ?>> consumerFactories = new ConcurrentHashMap<>();
+
+    /**
+     * @param key     Settings of the factory, compared with {@code equals}
+     * @param factory Creates the factory the first time the settings are asked for
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> ProducerFactory<K, V> producerFactory(Object key, Supplier<ProducerFactory<K, V>> factory) {
+        return (ProducerFactory<K, V>) producerFactories.computeIfAbsent(key, k -> {
+            log.info("Configure shared producer factory: {}", k);
+            ProducerFactory<K, V> producerFactory = factory.get();
+            if (meterRegistry != null) {
+                producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+            }
+            return producerFactory;
+        });
+    }
+
+    /**
+     * @param key     Settings of the factory, compared with {@code equals}
+     * @param factory Creates the factory the first time the settings are asked for
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> ConsumerFactory<K, V> consumerFactory(Object key, Supplier<ConsumerFactory<K, V>> factory) {
+        return (ConsumerFactory<K, V>) consumerFactories.computeIfAbsent(key, k -> {
+            ConsumerFactory<K, V> consumerFactory = factory.get();
+            if (meterRegistry != null) {
+                consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+            }
+            return consumerFactory;
+        });
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (ProducerFactory<?, ?> producerFactory : producerFactories.values()) {
+            if (producerFactory instanceof DisposableBean disposable) {
+                disposable.destroy();
+            } else {
+                producerFactory.reset();
+            }
+        }
+        producerFactories.clear();
+        consumerFactories.clear();
+    }
+}
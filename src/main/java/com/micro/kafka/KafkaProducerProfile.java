@@ -0,0 +1,49 @@
+package com.micro.kafka;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Map;
+
+/**
+ * Producer settings tuned for a delivery goal. Selected with {@code kafka.producer.profile}; every setting may be
+ * overridden with its own {@code kafka.producer.*} property.
+ * <ul>
+ *     <li>{@link #DEFAULT}: the settings producers had before profiles, unbatched with the Kafka client delivery
+ *     guarantees, {@code acks=all} and idempotent</li>
+ *     <li>{@link #LOW_LATENCY}: sends as soon as possible, batching only records that queue up while a request is
+ *     in flight, and waits for the leader only. A record is lost when the leader fails before replicating it and
+ *     may be duplicated on retry, so it must be chosen explicitly</li>
+ *     <li>{@link #THROUGHPUT}: waits up to {@code linger.ms} to fill large compressed batches, idempotent</li>
+ *     <li>{@link #EXACTLY_ONCE}: idempotent and transactional, sends must run inside a Kafka transaction</li>
+ * </ul>
+ */
+@Getter
+@RequiredArgsConstructor
+public enum KafkaProducerProfile {
+    DEFAULT(0, 0, "none", "all", true, 5, false),
+    LOW_LATENCY(16_384, 0, "none", "1", false, 5, false),
+    THROUGHPUT(262_144, 20, "lz4", "all", true, 5, false),
+    EXACTLY_ONCE(65_536, 5, "lz4", "all", true, 5, true);
+
+    private final int batchSize;
+    private final int lingerMs;
+    private final String compressionType;
+    private final String acks;
+    private final boolean idempotence;
+    private final int maxInFlight;
+    private final boolean transactional;
+
+    /**
+     * Adds the profile settings to a producer configuration
+     */
+    public void apply(Map<String, Object> config) {
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        config.put(ProducerConfig.ACKS_CONFIG, acks);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, idempotence);
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, maxInFlight);
+    }
+}
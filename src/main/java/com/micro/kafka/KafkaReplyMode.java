@@ -0,0 +1,21 @@
+package com.micro.kafka;
+
+/**
+ * How an instance receives the replies of its {@code ReplyingKafkaTemplate}, selected with {@code kafka.reply.mode}.
+ * <ul>
+ *     <li>{@link #SHARED}: every instance consumes the whole reply topic in its own group and drops foreign replies
+ *     before deserializing them</li>
+ *     <li>{@link #PARTITION}: the instance is assigned the {@code kafka.reply.partition} partition of the reply topic
+ *     and advertises it in the {@code REPLY_PARTITION} header. The partition is required and must differ between
+ *     instances, e.g. the ordinal of a StatefulSet pod</li>
+ *     <li>{@link #TOPIC}: the instance consumes its own {@code <reply topic>.<kafka.reply.instance-id>} topic,
+ *     created on startup, and advertises it in the {@code REPLY_TOPIC} header. The id is required and must be stable
+ *     across restarts, e.g. a StatefulSet pod name, not a generated pod name. Topics of removed instances are not
+ *     deleted and must be cleaned up when scaling down</li>
+ * </ul>
+ */
+public enum KafkaReplyMode {
+    SHARED,
+    PARTITION,
+    TOPIC
+}
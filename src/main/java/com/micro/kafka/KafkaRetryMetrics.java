@@ -0,0 +1,36 @@
+package com.micro.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.RetryListener;
+
+/**
+ * Counts, per topic, the failed deliveries retried by the error handler ({@code kafka.retry.attempts}), the records
+ * recovered after the retries ({@code kafka.records.recovered}) and the recoveries failing
+ * ({@code kafka.records.recovery.failures}).
+ */
+@RequiredArgsConstructor
+public class KafkaRetryMetrics implements RetryListener {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+        counter("kafka.retry.attempts", record).increment();
+    }
+
+    @Override
+    public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+        counter("kafka.records.recovered", record).increment();
+    }
+
+    @Override
+    public void recoveryFailed(ConsumerRecord<?, ?> record, Exception original, Exception failure) {
+        counter("kafka.records.recovery.failures", record).increment();
+    }
+
+    private Counter counter(String name, ConsumerRecord<?, ?> record) {
+        return Counter.builder(name).tag("topic", record.topic()).register(meterRegistry);
+    }
+}
@@ -0,0 +1,49 @@
+package com.micro.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Decodes values with the {@link KafkaValueFormat} announced in the record headers, so producers using different
+ * formats can share a topic. Records without the header are decoded with the default format. The configuration is
+ * forwarded to one {@link JsonDeserializer} per format.
+ */
+public class KafkaValueDeserializer<T> implements Deserializer<T> {
+    private final KafkaValueFormat defaultFormat;
+    private final Map<KafkaValueFormat, JsonDeserializer<T>> delegates = new EnumMap<>(KafkaValueFormat.class);
+
+    public KafkaValueDeserializer(KafkaValueFormat defaultFormat, ObjectMapper objectMapper) {
+        this.defaultFormat = defaultFormat;
+        for (KafkaValueFormat format : KafkaValueFormat.values()) {
+            delegates.put(format, new JsonDeserializer<>(format.mapper(objectMapper)));
+        }
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegates.values().forEach(delegate -> delegate.configure(configs, isKey));
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return delegates.get(defaultFormat).deserialize(topic, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        Header header = headers.lastHeader(KafkaValueFormat.HEADER);
+        KafkaValueFormat format = header == null ? null : KafkaValueFormat.of(header.value());
+        return delegates.get(format == null ? defaultFormat : format).deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        delegates.values().forEach(JsonDeserializer::close);
+    }
+}
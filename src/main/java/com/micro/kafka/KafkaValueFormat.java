@@ -0,0 +1,53 @@
+package com.micro.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.Getter;
+import org.springframework.messaging.MessageHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encoding of record values, announced in the {@link #HEADER} header so consumers decode records of producers using
+ * another format. Both formats share the modules and features of the application {@link ObjectMapper}.
+ * <ul>
+ *     <li>{@link #JSON}: text JSON, readable by any consumer</li>
+ *     <li>{@link #SMILE}: binary JSON, smaller and cheaper to encode and decode</li>
+ * </ul>
+ */
+@Getter
+public enum KafkaValueFormat {
+    JSON("application/json"),
+    SMILE("application/x-jackson-smile");
+
+    public static final String HEADER = MessageHeaders.CONTENT_TYPE;
+    private static final KafkaValueFormat[] FORMATS = values();
+
+    private final String contentType;
+    private final byte[] header;
+
+    KafkaValueFormat(String contentType) {
+        this.contentType = contentType;
+        this.header = contentType.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Mapper writing this format, configured as the given JSON mapper
+     */
+    public ObjectMapper mapper(ObjectMapper objectMapper) {
+        return this == SMILE ? objectMapper.copyWith(new SmileFactory()) : objectMapper;
+    }
+
+    /**
+     * @return Format of the header value, or {@code null} when unknown
+     */
+    public static KafkaValueFormat of(byte[] header) {
+        for (KafkaValueFormat format : FORMATS) {
+            if (Arrays.equals(format.header, header)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
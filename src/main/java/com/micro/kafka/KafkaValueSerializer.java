@@ -0,0 +1,26 @@
+package com.micro.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * {@link JsonSerializer} writing values in a {@link KafkaValueFormat} and announcing it in the record headers.
+ */
+@Getter
+public class KafkaValueSerializer<T> extends JsonSerializer<T> {
+    private final KafkaValueFormat format;
+
+    public KafkaValueSerializer(KafkaValueFormat format, ObjectMapper objectMapper) {
+        super(format.mapper(objectMapper));
+        this.format = format;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, T data) {
+        headers.remove(KafkaValueFormat.HEADER);
+        headers.add(KafkaValueFormat.HEADER, format.getHeader());
+        return super.serialize(topic, headers, data);
+    }
+}
@@ -0,0 +1,171 @@
+package com.micro.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.classify.BinaryExceptionClassifier;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hands the records of a partition to an executor, so one consumer thread feeds many handlers. Records with the same
+ * key are handled one after the other, in offset order; records without key are not ordered.
+ * <p>
+ * Requires a container with {@code AckMode.MANUAL} and {@code asyncAcks}: each record is acknowledged once handled,
+ * and the container only commits an offset when every earlier record of the partition was acknowledged. Like the
+ * container error handler, a failing record is retried with the back off when the classifier says the exception is
+ * retryable, then given to the recoverer. Retries are scheduled on the executor, no thread waits for them.
+ * <p>
+ * When the recoverer fails too, the record is not acknowledged, the chain of its key stops and the container is
+ * stopped: the container waits for every record of a poll to be acknowledged before polling again, so it would
+ * otherwise stay paused. The next records of the key are not handled nor acknowledged either, the committed offset
+ * stays before the failed record and it is delivered again, with the ones after it, once the container is started
+ * again. Records in flight when a partition is revoked may also be delivered again to the next owner.
+ * <p>
+ * The consumer thread blocks once {@code maxInFlight} records are being handled, so keep it below what the handlers
+ * complete within {@code max.poll.interval.ms}.
+ */
+@Slf4j
+public class KeyOrderedMessageListener<K, V> implements AcknowledgingMessageListener<K, V>, ConsumerSeekAware, AutoCloseable {
+    private final Consumer<ConsumerRecord<K, V>> handler;
+    private final ConsumerRecordRecoverer recoverer;
+    private final BackOff backOff;
+    private final BinaryExceptionClassifier retryable;
+    private final ExecutorService executorService;
+    private final MessageListenerContainer container;
+    private final Semaphore inFlight;
+    private final Map<K, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Set<K>> stopped = new ConcurrentHashMap<>();
+
+    /**
+     * @param retryable       Classifier of the exceptions worth a retry, see
+     *                        {@link org.springframework.kafka.listener.ExceptionClassifier}
+     * @param executorService Executor running the handlers, closed with the listener
+     * @param container       Container of the listener, stopped when a record can neither be handled nor recovered
+     */
+    public KeyOrderedMessageListener(Consumer<ConsumerRecord<K, V>> handler, ConsumerRecordRecoverer recoverer,
+                                     BackOff backOff, BinaryExceptionClassifier retryable,
+                                     ExecutorService executorService, MessageListenerContainer container, int maxInFlight) {
+        this.handler = handler;
+        this.recoverer = recoverer;
+        this.backOff = backOff;
+        this.retryable = retryable;
+        this.executorService = executorService;
+        this.container = container;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void onMessage(ConsumerRecord<K, V> data, Acknowledgment acknowledgment) {
+        inFlight.acquireUninterruptibly();
+        K key = data.key();
+        if (key == null) {
+            handle(data, acknowledgment).whenComplete((result, e) -> inFlight.release());
+            return;
+        }
+        // Only the consumer thread appends to a chain, workers only remove the tail they completed
+        CompletableFuture<Void> previous = tails.get(key);
+        CompletableFuture<Void> tail = previous == null
+                ? handle(data, acknowledgment)
+                : previous.thenCompose(result -> handle(data, acknowledgment));
+        tails.put(key, tail);
+        tail.whenComplete((result, e) -> {
+            inFlight.release();
+            if (e == null) {
+                tails.remove(key, tail);
+                return;
+            }
+            // A failed tail stays in place, so every later record of the key fails without being handled
+            stopped.computeIfAbsent(new TopicPartition(data.topic(), data.partition()), partition -> ConcurrentHashMap.newKeySet()).add(key);
+            log.warn("Kafka Record not acknowledged, key chain stopped: topic: {} -- partition: {} -- offset: {}",
+                    data.topic(), data.partition(), data.offset());
+        });
+    }
+
+    /**
+     * Restarts the stopped key chains of the revoked partitions, their records are delivered again from the
+     * committed offset once the container is started again.
+     */
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            Set<K> keys = stopped.remove(partition);
+            if (keys != null) {
+                keys.forEach(key -> tails.computeIfPresent(key, (k, tail) -> tail.isCompletedExceptionally() ? null : tail));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executorService.close();
+    }
+
+    /**
+     * @return Future completed once the record is handled or recovered, and acknowledged
+     */
+    private CompletableFuture<Void> handle(ConsumerRecord<K, V> data, Acknowledgment acknowledgment) {
+        CompletableFuture<Void> handled = new CompletableFuture<>();
+        attempt(data, null, executorService, handled);
+        return handled.thenRun(acknowledgment::acknowledge);
+    }
+
+    private void attempt(ConsumerRecord<K, V> data, BackOffExecution execution, Executor executor, CompletableFuture<Void> handled) {
+        CompletableFuture.runAsync(() -> handler.accept(data), executor).whenComplete((result, e) -> {
+            if (e == null) {
+                handled.complete(null);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (!(cause instanceof Exception exception)) {
+                fail(data, cause, handled);
+                return;
+            }
+            BackOffExecution backOffExecution = execution == null ? backOff.start() : execution;
+            long interval = retryable.classify(exception) ? backOffExecution.nextBackOff() : BackOffExecution.STOP;
+            if (interval == BackOffExecution.STOP) {
+                recover(data, exception, handled);
+                return;
+            }
+            log.warn("Kafka Record retry in {} ms: topic: {} -- offset: {}", interval, data.topic(), data.offset(), exception);
+            attempt(data, backOffExecution, CompletableFuture.delayedExecutor(interval, TimeUnit.MILLISECONDS, executorService), handled);
+        });
+    }
+
+    private void recover(ConsumerRecord<K, V> data, Exception exception, CompletableFuture<Void> handled) {
+        try {
+            recoverer.accept(data, exception);
+            handled.complete(null);
+        } catch (RuntimeException e) {
+            fail(data, e, handled);
+        }
+    }
+
+    /**
+     * Leaves the record unacknowledged and stops the container, which would otherwise stay paused waiting for it
+     */
+    private void fail(ConsumerRecord<K, V> data, Throwable failure, CompletableFuture<Void> handled) {
+        log.error("Kafka Record recovery Error, stopping container {}: topic: {} -- offset: {}",
+                container.getListenerId(), data.topic(), data.offset(), failure);
+        handled.completeExceptionally(failure);
+        container.stop(() -> log.warn("Kafka container {} stopped, start it again to redeliver from topic: {} -- offset: {}",
+                container.getListenerId(), data.topic(), data.offset()));
+    }
+}
@@ -0,0 +1,49 @@
+package com.micro.kafka;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.requestreply.CorrelationKey;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Correlation ids starting with an id of this instance, so replies meant for other instances are recognised from the
+ * correlation header alone. Layout: {@code long instance msb | long instance lsb | long sequence}.
+ */
+public class ReplyCorrelation {
+    private static final int PREFIX_SIZE = 2 * Long.BYTES;
+
+    private final byte[] prefix;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ReplyCorrelation() {
+        this(UUID.randomUUID());
+    }
+
+    public ReplyCorrelation(UUID instance) {
+        this.prefix = ByteBuffer.allocate(PREFIX_SIZE)
+                .putLong(instance.getMostSignificantBits())
+                .putLong(instance.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Correlation strategy for {@code ReplyingKafkaTemplate.setCorrelationIdStrategy}
+     */
+    public <K, V> CorrelationKey next(ProducerRecord<K, V> record) {
+        return new CorrelationKey(ByteBuffer.allocate(PREFIX_SIZE + Long.BYTES)
+                .put(prefix)
+                .putLong(sequence.incrementAndGet())
+                .array());
+    }
+
+    /**
+     * @return {@code true} when the correlation id was created by this instance
+     */
+    public boolean isLocal(byte[] correlationId) {
+        return correlationId.length == PREFIX_SIZE + Long.BYTES
+                && Arrays.equals(correlationId, 0, PREFIX_SIZE, prefix, 0, PREFIX_SIZE);
+    }
+}
@@ -0,0 +1,43 @@
+package com.micro.kafka;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.util.Map;
+
+/**
+ * Returns {@code null} for replies correlated by another instance without decoding them, and delegates the others.
+ * Replies without correlation header are decoded.
+ */
+@RequiredArgsConstructor
+public class ReplyFilteringDeserializer<T> implements Deserializer<T> {
+    private final Deserializer<T> delegate;
+    private final ReplyCorrelation replyCorrelation;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        Header correlation = headers.lastHeader(KafkaHeaders.CORRELATION_ID);
+        if (correlation != null && !replyCorrelation.isLocal(correlation.value())) {
+            return null;
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
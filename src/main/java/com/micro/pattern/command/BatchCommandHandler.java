@@ -0,0 +1,21 @@
+package com.micro.pattern.command;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Handler receiving the commands of a {@link CommandBus#sendCommands} call in one invocation, to share database or
+ * broker round trips between them. Registered with {@link CommandEvent} like any other handler.
+ */
+public interface BatchCommandHandler<R, C extends Command<R>> extends CommandHandler<R, C> {
+    /**
+     * @param commands Commands of the same type
+     * @return One result per command, in the same order
+     */
+    List<R> handleAll(List<C> commands) throws ExecutionException;
+
+    @Override
+    default R handle(C command) throws ExecutionException {
+        return handleAll(List.of(command)).getFirst();
+    }
+}
@@ -1,25 +1,207 @@
 package com.micro.pattern.command;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.integration.core.MessagingTemplate;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.*;
 
 @ConditionalOnProperty(prefix = "pattern", name = "cqrs.enabled", havingValue = "true")
 @RequiredArgsConstructor
+@Slf4j
 @Service
 public class CommandBus {
     private final MessagingTemplate messagingTemplate;
     private final MessageChannel commandChannel;
+    private final CommandBusHandler commandBusHandler;
+    @Value("${pattern.cqrs.direct-dispatch:false}")
+    private boolean directDispatch;
+    @Value("${pattern.cqrs.executor.virtual-threads:true}")
+    private boolean virtualThreads;
+    @Value("${pattern.cqrs.executor.pool-size:0}")
+    private int poolSize;
+    /**
+     * Maximum asynchronous commands of a type handled at once, keyed by command class name or simple name:
+     * {@code pattern.cqrs.concurrency={'CreateOrderCommand': 10}}
+     */
+    @Value("#{${pattern.cqrs.concurrency:{:}}}")
+    private Map<String, Integer> concurrency;
 
-    @SuppressWarnings("unchecked")
+    private ExecutorService executorService;
+    private final ClassValue<Optional<ConcurrencyLimit>> limits = new ClassValue<>() {
+        @Override
+        protected Optional<ConcurrencyLimit> computeValue(Class<?> type) {
+            Integer limit = concurrency.getOrDefault(type.getName(), concurrency.get(type.getSimpleName()));
+            return Optional.ofNullable(limit).map(ConcurrencyLimit::new);
+        }
+    };
+
+    /**
+     * Commands of one type running on the executor. Commands over the limit wait in a queue, not on an executor
+     * thread, and are submitted as running ones complete.
+     */
+    private static final class ConcurrencyLimit {
+        private final int limit;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int running;
+
+        private ConcurrencyLimit(int limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * @return Whether the task may be submitted now, otherwise it is queued
+         */
+        private synchronized boolean tryStart(Runnable task) {
+            if (running < limit) {
+                running++;
+                return true;
+            }
+            waiting.add(task);
+            return false;
+        }
+
+        /**
+         * @return Next queued task, which takes over the slot of the completed one
+         */
+        private synchronized Runnable complete() {
+            Runnable next = waiting.poll();
+            if (next == null) {
+                running--;
+            }
+            return next;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (virtualThreads) {
+            log.info("Configure CQRS executor: virtual threads");
+            executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("command-", 0).factory());
+        } else {
+            int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+            log.info("Configure CQRS executor: {} platform threads", threads);
+            executorService = Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    @PreDestroy
+    void destroy() {
+        executorService.close();
+    }
+
+    /**
+     * Sends the command in-process when {@code pattern.cqrs.direct-dispatch} is enabled, through the command channel
+     * otherwise.
+     */
     public <R, C> R sendCommand(C command) {
+        return directDispatch ? dispatchCommand(command) : sendCommandThroughChannel(command);
+    }
+
+    /**
+     * Groups the commands by type and hands every group to its handler in one call when the handler is a
+     * {@link BatchCommandHandler}, one command at a time otherwise. Commands are dispatched in-process.
+     *
+     * @param commands Commands, of one or more types
+     * @return One result per command, in the iteration order of the collection
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <R, C> List<R> sendCommands(Collection<C> commands) {
+        Map<Class<? extends Command>, List<Integer>> positions = new LinkedHashMap<>();
+        Map<Class<? extends Command>, List<Command<R>>> groups = new LinkedHashMap<>();
+        int position = 0;
+        for (C command : commands) {
+            Command<R> typed = (Command<R>) command;
+            positions.computeIfAbsent(typed.getClass(), type -> new ArrayList<>()).add(position++);
+            groups.computeIfAbsent(typed.getClass(), type -> new ArrayList<>()).add(typed);
+        }
+        Object[] results = new Object[position];
+        for (Map.Entry<Class<? extends Command>, List<Command<R>>> group : groups.entrySet()) {
+            List<R> groupResults;
+            try {
+                groupResults = commandBusHandler.executeCommands(group.getKey(), group.getValue());
+            } catch (ExecutionException | RuntimeException e) {
+                throw handlingException(group.getValue(), e);
+            }
+            List<Integer> groupPositions = positions.get(group.getKey());
+            for (int i = 0; i < groupPositions.size(); i++) {
+                results[groupPositions.get(i)] = groupResults.get(i);
+            }
+        }
+        return (List<R>) Arrays.asList(results);
+    }
+
+    /**
+     * Sends the command from the CQRS executor, releasing the calling thread while the handler runs. Commands of a
+     * type with a configured concurrency limit are queued until a running one completes, without holding a caller
+     * or executor thread.
+     *
+     * @return Future completed with the handler result
+     */
+    public <R, C> CompletableFuture<R> sendCommandAsync(C command) {
+        Optional<ConcurrencyLimit> limit = limits.get(command.getClass());
+        if (limit.isEmpty()) {
+            return CompletableFuture.supplyAsync(() -> sendCommand(command), executorService);
+        }
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                result.complete(sendCommand(command));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                Runnable next = limit.get().complete();
+                if (next != null) {
+                    executorService.execute(next);
+                }
+            }
+        };
+        if (limit.get().tryStart(task)) {
+            executorService.execute(task);
+        }
+        return result;
+    }
+
+    /**
+     * Sends the command through the command channel, so channel interceptors and remote handlers apply.
+     */
+    @SuppressWarnings("unchecked")
+    public <R, C> R sendCommandThroughChannel(C command) {
         Message<?> message = messagingTemplate.sendAndReceive(commandChannel, new GenericMessage<>(command));
         return Optional.ofNullable(message).map(msg -> (R) msg.getPayload()).orElse(null);
     }
+
+    /**
+     * Calls the command handler on the calling thread without creating messages or reply channels. Handler failures
+     * are wrapped in a {@link MessageHandlingException}, as they are when sent through the channel.
+     */
+    @SuppressWarnings("unchecked")
+    public <R, C> R dispatchCommand(C command) {
+        try {
+            return commandBusHandler.executeCommand((Command<R>) command);
+        } catch (ExecutionException | RuntimeException e) {
+            throw handlingException(command, e);
+        }
+    }
+
+    /**
+     * Wraps a handler failure the way the channel does, messaging exceptions are thrown as they are.
+     */
+    private static MessagingException handlingException(Object payload, Exception e) {
+        if (e instanceof MessagingException messagingException) {
+            return messagingException;
+        }
+        return new MessageHandlingException(new GenericMessage<>(payload), e);
+    }
 }
@@ -1,10 +1,19 @@
 package com.micro.pattern.command;
 
+import com.micro.pattern.idempotency.DuplicateTidException;
+import com.micro.pattern.idempotency.IdempotencyRecord;
+import com.micro.pattern.idempotency.IdempotencyStore;
+import com.micro.pattern.idempotency.IdempotentCommand;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
 @ConditionalOnProperty(prefix = "pattern", name = "cqrs.enabled", havingValue = "true")
@@ -12,10 +21,147 @@ import java.util.concurrent.ExecutionException;
 @Component
 public class CommandBusHandler {
     private final CommandProvider commandProvider;
+    private final QueryCache queryCache;
+    private final ObjectProvider<IdempotencyStore> idempotencyStore;
 
+    /**
+     * Handles the command. An {@link IdempotentCommand} whose TID was already handled returns the stored result
+     * without calling the handler when an {@link IdempotencyStore} is configured.
+     *
+     * @throws DuplicateTidException When the TID is still being handled, or was handled but its result was not kept
+     */
     @SuppressWarnings("unchecked")
     @ServiceActivator(inputChannel = "commandChannel")
     public <R> R executeCommand(Command<R> command) throws ExecutionException {
-        return (R) commandProvider.get(command.getClass()).handle(command);
+        IdempotencyStore store = idempotencyStore.getIfAvailable();
+        UUID tid = store != null && command instanceof IdempotentCommand idempotent ? idempotent.getTid() : null;
+        if (tid == null) {
+            return handle(command);
+        }
+        IdempotencyRecord record = store.tryAcquire(tid);
+        if (record != null) {
+            return duplicate(tid, record);
+        }
+        try {
+            R result = handle(command);
+            store.complete(tid, result);
+            return result;
+        } catch (ExecutionException | RuntimeException | Error e) {
+            store.release(tid);
+            throw e;
+        }
+    }
+
+    /**
+     * Handles commands of the same type in one call when their handler is a {@link BatchCommandHandler}, one by one
+     * otherwise. {@link IdempotentCommand}s whose TID was already handled are left out of the call and get their
+     * stored result when an {@link IdempotencyStore} is configured.
+     *
+     * @param type     Command type
+     * @param commands Commands of that type
+     * @return One result per command, in the same order
+     * @throws DuplicateTidException When a TID is still being handled, or was handled but its result was not kept
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <R> List<R> executeCommands(Class<? extends Command> type, List<? extends Command<R>> commands) throws ExecutionException {
+        IdempotencyStore store = idempotencyStore.getIfAvailable();
+        if (store == null || !IdempotentCommand.class.isAssignableFrom(type)) {
+            return handleAll(type, commands);
+        }
+        Object[] results = new Object[commands.size()];
+        List<Command<R>> pending = new ArrayList<>(commands.size());
+        List<Integer> positions = new ArrayList<>(commands.size());
+        List<UUID> acquired = new ArrayList<>(commands.size());
+        List<R> handled;
+        try {
+            for (int i = 0; i < commands.size(); i++) {
+                Command<R> command = commands.get(i);
+                UUID tid = ((IdempotentCommand) command).getTid();
+                IdempotencyRecord record = tid == null ? null : store.tryAcquire(tid);
+                if (record != null) {
+                    results[i] = duplicate(tid, record);
+                    continue;
+                }
+                if (tid != null) {
+                    acquired.add(tid);
+                }
+                pending.add(command);
+                positions.add(i);
+            }
+            handled = pending.isEmpty() ? List.of() : handleAll(type, pending);
+        } catch (ExecutionException | RuntimeException | Error e) {
+            acquired.forEach(store::release);
+            throw e;
+        }
+        for (int i = 0; i < handled.size(); i++) {
+            results[positions.get(i)] = handled.get(i);
+            UUID tid = ((IdempotentCommand) pending.get(i)).getTid();
+            if (tid != null) {
+                store.complete(tid, handled.get(i));
+            }
+        }
+        return (List<R>) Arrays.asList(results);
+    }
+
+    /**
+     * Cached queries are invalidated even when a handler fails, the commands handled before it may have written.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <R> List<R> handleAll(Class<? extends Command> type, List<? extends Command<R>> commands) throws ExecutionException {
+        CommandHandler<?, Command<?>> handler = handler(type);
+        try {
+            if (handler instanceof BatchCommandHandler batchHandler) {
+                List<R> results = batchHandler.handleAll(commands);
+                if (results.size() != commands.size()) {
+                    throw new IllegalStateException("Batch handler of " + type.getName() + " returned " + results.size()
+                            + " results for " + commands.size() + " commands");
+                }
+                return results;
+            }
+            List<R> results = new ArrayList<>(commands.size());
+            for (Command<R> command : commands) {
+                results.add((R) handler.handle(command));
+            }
+            return results;
+        } finally {
+            invalidate(type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R handle(Command<R> command) throws ExecutionException {
+        CommandHandler<?, Command<?>> handler = handler(command.getClass());
+        try {
+            return (R) handler.handle(command);
+        } finally {
+            invalidate(command.getClass());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R duplicate(UUID tid, IdempotencyRecord record) {
+        if (!record.completed()) {
+            throw new DuplicateTidException(tid);
+        }
+        if (record.restored()) {
+            throw new DuplicateTidException(tid, "TID " + tid + " was already handled, its result is unknown");
+        }
+        return (R) record.result();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void invalidate(Class<? extends Command> type) {
+        for (Class<? extends Query> query : commandProvider.invalidates(type)) {
+            queryCache.invalidate(query);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private CommandHandler<?, Command<?>> handler(Class<? extends Command> type) {
+        CommandHandler<?, Command<?>> handler = commandProvider.get(type);
+        if (handler == null) {
+            throw new IllegalStateException("No handler registered for command " + type.getName());
+        }
+        return handler;
     }
 }
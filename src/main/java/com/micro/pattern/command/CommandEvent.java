@@ -7,4 +7,9 @@ import java.lang.annotation.*;
 @Inherited
 public @interface CommandEvent {
     Class<? extends Command> command() default Command.class;
+
+    /**
+     * @return Query types whose cached results are evicted once the command is handled
+     */
+    Class<? extends Query>[] invalidates() default {};
 }
@@ -1,37 +1,79 @@
 package com.micro.pattern.command;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.config.BeanPostProcessor;
+import com.micro.pattern.command.processor.CommandIndexProcessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 
-import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Resolves the handler of each command. Handlers are read from the indexes generated by
+ * {@link CommandIndexProcessor} at compile time, together with the {@link CommandEvent} beans of the context. The
+ * registry is built once and lookups go through a {@link ClassValue}, so they are lock-free and constant-time.
+ */
 @ConditionalOnProperty(prefix = "pattern", name = "cqrs.enabled", havingValue = "true")
-@Slf4j
+@RequiredArgsConstructor
 @Component
-public class CommandProvider implements BeanPostProcessor {
+public class CommandProvider implements SmartInitializingSingleton {
     @SuppressWarnings("rawtypes")
-    final Map<Class<? extends Command>, CommandHandler> registry = new HashMap<>();
+    private static final Class[] NO_QUERIES = {};
+
+    private final ApplicationContext applicationContext;
+
+    private volatile Map<Class<?>, Object> registry;
+
+    @SuppressWarnings("rawtypes")
+    private final ClassValue<CommandHandler> handlers = new ClassValue<>() {
+        @Override
+        protected CommandHandler computeValue(Class<?> type) {
+            return (CommandHandler) registry().get(type);
+        }
+    };
+
+    @SuppressWarnings("rawtypes")
+    private final ClassValue<Class[]> invalidations = new ClassValue<>() {
+        @Override
+        protected Class[] computeValue(Class<?> type) {
+            Object handler = registry().get(type);
+            CommandEvent commandEvent = handler == null ? null : ClassUtils.getUserClass(handler).getAnnotation(CommandEvent.class);
+            return commandEvent == null ? NO_QUERIES : commandEvent.invalidates();
+        }
+    };
 
     @SuppressWarnings({"rawtypes", "unchecked"})
     public CommandHandler<?, Command<?>> get(Class<? extends Command> c) {
-        return registry.get(c);
+        return handlers.get(c);
     }
 
-    @SuppressWarnings({"NullableProblems", "rawtypes"})
+    /**
+     * @return Query types whose cached results are stale once a command of this type is handled
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Class<? extends Query>[] invalidates(Class<? extends Command> c) {
+        return invalidations.get(c);
+    }
 
     @Override
-    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
-        Class<?> clazz = ClassUtils.getUserClass(bean);
-        if (clazz.isAnnotationPresent(CommandEvent.class)) {
-            log.info("Configuring command: {}", clazz);
-            Class<? extends Command> command = clazz.getAnnotation(CommandEvent.class).command();
-            registry.put(command, (CommandHandler) bean);
+    public void afterSingletonsInstantiated() {
+        registry();
+    }
+
+    private Map<Class<?>, Object> registry() {
+        Map<Class<?>, Object> current = registry;
+        if (current == null) {
+            synchronized (this) {
+                current = registry;
+                if (current == null) {
+                    current = HandlerIndex.load(applicationContext, CommandIndexProcessor.COMMAND_INDEX, CommandEvent.class,
+                            CommandEvent::command);
+                    registry = current;
+                }
+            }
         }
-        return BeanPostProcessor.super.postProcessAfterInitialization(bean, beanName);
+        return current;
     }
 }
@@ -0,0 +1,71 @@
+package com.micro.pattern.command;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Loads handler beans from the indexes generated by
+ * {@link com.micro.pattern.command.processor.CommandIndexProcessor}, merged with the annotated beans of the context:
+ * modules compiled without the processor ship no index, and their handlers are still found. An indexed handler that
+ * is not a bean fails the load.
+ */
+@Slf4j
+final class HandlerIndex {
+    private HandlerIndex() {
+    }
+
+    /**
+     * @param index      Index resource
+     * @param annotation Handler annotation
+     * @param handledBy  Handled type declared by the annotation
+     * @return Immutable map of handled type to handler bean
+     */
+    static <A extends Annotation> Map<Class<?>, Object> load(ApplicationContext applicationContext, String index,
+                                                             Class<A> annotation, Function<A, Class<?>> handledBy) {
+        Map<Class<?>, Object> handlers = new HashMap<>();
+        ClassLoader classLoader = Objects.requireNonNull(applicationContext.getClassLoader());
+        List<URL> indexes;
+        try {
+            indexes = Collections.list(classLoader.getResources(index));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (Object bean : applicationContext.getBeansWithAnnotation(annotation).values()) {
+            register(handlers, handledBy.apply(ClassUtils.getUserClass(bean).getAnnotation(annotation)), bean);
+        }
+        for (URL url : indexes) {
+            try {
+                Properties entries = PropertiesLoaderUtils.loadProperties(new UrlResource(url));
+                for (String handled : entries.stringPropertyNames()) {
+                    Class<?> handlerType = ClassUtils.resolveClassName(entries.getProperty(handled), classLoader);
+                    Object handler = applicationContext.getBeanProvider(handlerType).getIfAvailable();
+                    if (handler == null) {
+                        throw new IllegalStateException("Handler " + handlerType.getName() + " listed in " + url + " is not a bean");
+                    }
+                    register(handlers, ClassUtils.resolveClassName(handled, classLoader), handler);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return Map.copyOf(handlers);
+    }
+
+    private static void register(Map<Class<?>, Object> handlers, Class<?> handled, Object handler) {
+        log.info("Configuring handler: {}", handled);
+        Object previous = handlers.putIfAbsent(handled, handler);
+        if (previous != null && previous != handler) {
+            throw new IllegalStateException(handled.getName() + " has more than one handler");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.micro.pattern.command;
+
+import lombok.NoArgsConstructor;
+
+/**
+ * Read request answered by a {@link QueryHandler}. Queries of a cached type are cache keys, so they must implement
+ * {@code equals} and {@code hashCode}.
+ *
+ * @param <R> Result type
+ */
+@NoArgsConstructor
+public class Query<R> {
+}
@@ -0,0 +1,46 @@
+package com.micro.pattern.command;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+
+@ConditionalOnProperty(prefix = "pattern", name = "cqrs.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Service
+public class QueryBus {
+    private final QueryProvider queryProvider;
+    private final QueryCache queryCache;
+
+    /**
+     * Calls the query handler on the calling thread, serving the result from the {@link QueryCache} when the handler
+     * is marked {@link QueryEvent#cached()}. Handler failures are wrapped in a {@link MessageHandlingException}, as
+     * they are for commands.
+     */
+    public <R> R sendQuery(Query<R> query) {
+        try {
+            return executeQuery(query);
+        } catch (ExecutionException | RuntimeException e) {
+            if (e instanceof MessagingException messagingException) {
+                throw messagingException;
+            }
+            throw new MessageHandlingException(new GenericMessage<>(query), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R executeQuery(Query<R> query) throws ExecutionException {
+        QueryHandler<?, Query<?>> handler = queryProvider.get(query.getClass());
+        if (handler == null) {
+            throw new IllegalStateException("No handler registered for query " + query.getClass().getName());
+        }
+        if (queryProvider.isCached(query.getClass())) {
+            return queryCache.get(query, handler);
+        }
+        return (R) handler.handle(query);
+    }
+}
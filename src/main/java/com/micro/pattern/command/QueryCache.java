@@ -0,0 +1,101 @@
+package com.micro.pattern.command;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Results of the queries whose handler is marked {@link QueryEvent#cached()}, kept in one region per query type.
+ * Entries expire after {@code pattern.cqrs.query.cache.ttl-ms} and the oldest entries of a region are evicted once it
+ * holds more than {@code pattern.cqrs.query.cache.max-size}. Handling a command empties the regions it
+ * {@link CommandEvent#invalidates() invalidates}.
+ */
+@ConditionalOnProperty(prefix = "pattern", name = "cqrs.enabled", havingValue = "true")
+@Slf4j
+@Component
+public class QueryCache {
+    @Value("${pattern.cqrs.query.cache.max-size:10000}")
+    private int maxSize;
+    @Value("${pattern.cqrs.query.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    private final Map<Class<?>, Region> regions = new ConcurrentHashMap<>();
+
+    private record Entry(Object value, long expiresAt) {
+    }
+
+    /**
+     * Insertion-ordered entries of one query type, guarded by the region lock. The map drops its eldest entry once
+     * it holds more than the maximum size.
+     */
+    private final class Region extends LinkedHashMap<Query<?>, Entry> {
+        private long generation;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Query<?>, Entry> eldest) {
+            return size() > maxSize;
+        }
+
+        private synchronized Entry lookup(Query<?> query) {
+            Entry entry = get(query);
+            if (entry != null && entry.expiresAt() - System.nanoTime() <= 0) {
+                remove(query);
+                return null;
+            }
+            return entry;
+        }
+
+        private synchronized long generation() {
+            return generation;
+        }
+
+        private synchronized void store(Query<?> query, Object value, long expectedGeneration) {
+            // An invalidation cleared the region while the value was computed
+            if (generation == expectedGeneration) {
+                put(query, new Entry(value, System.nanoTime() + ttlMs * 1_000_000));
+            }
+        }
+
+        private synchronized void invalidate() {
+            generation++;
+            clear();
+        }
+    }
+
+    /**
+     * Returns the cached result of the query, or calls the handler and caches its result. A result computed while
+     * the region was invalidated is returned but not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(Query<R> query, QueryHandler<?, Query<?>> handler) throws ExecutionException {
+        Region region = regions.computeIfAbsent(query.getClass(), type -> {
+            log.info("Configure query cache: {} -- max-size {}, ttl {} ms", type.getName(), maxSize, ttlMs);
+            return new Region();
+        });
+        Entry entry = region.lookup(query);
+        if (entry != null) {
+            return (R) entry.value();
+        }
+        long generation = region.generation();
+        R result = (R) handler.handle(query);
+        region.store(query, result, generation);
+        return result;
+    }
+
+    /**
+     * Evicts every cached result of the query type.
+     */
+    @SuppressWarnings("rawtypes")
+    public void invalidate(Class<? extends Query> type) {
+        Region region = regions.get(type);
+        if (region != null) {
+            region.invalidate();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.micro.pattern.command;
+
+import java.lang.annotation.*;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface QueryEvent {
+    Class<? extends Query> query() default Query.class;
+
+    /**
+     * @return {@code true} to keep results in the {@link QueryCache}
+     */
+    boolean cached() default false;
+}
@@ -0,0 +1,7 @@
+package com.micro.pattern.command;
+
+import java.util.concurrent.ExecutionException;
+
+public interface QueryHandler<R, Q extends Query<R>> {
+    R handle(Q query) throws ExecutionException;
+}
@@ -0,0 +1,70 @@
+package com.micro.pattern.command;
+
+import com.micro.pattern.command.processor.CommandIndexProcessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+
+/**
+ * Resolves the handler of each query, the same way {@link CommandProvider} does for commands.
+ */
+@ConditionalOnProperty(prefix = "pattern", name = "cqrs.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Component
+public class QueryProvider implements SmartInitializingSingleton {
+    private final ApplicationContext applicationContext;
+
+    private volatile Map<Class<?>, Object> registry;
+
+    @SuppressWarnings("rawtypes")
+    private final ClassValue<QueryHandler> handlers = new ClassValue<>() {
+        @Override
+        protected QueryHandler computeValue(Class<?> type) {
+            return (QueryHandler) registry().get(type);
+        }
+    };
+
+    private final ClassValue<Boolean> cached = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            Object handler = registry().get(type);
+            QueryEvent queryEvent = handler == null ? null : ClassUtils.getUserClass(handler).getAnnotation(QueryEvent.class);
+            return queryEvent != null && queryEvent.cached();
+        }
+    };
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public QueryHandler<?, Query<?>> get(Class<? extends Query> q) {
+        return handlers.get(q);
+    }
+
+    @SuppressWarnings("rawtypes")
+    public boolean isCached(Class<? extends Query> q) {
+        return cached.get(q);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        registry();
+    }
+
+    private Map<Class<?>, Object> registry() {
+        Map<Class<?>, Object> current = registry;
+        if (current == null) {
+            synchronized (this) {
+                current = registry;
+                if (current == null) {
+                    current = HandlerIndex.load(applicationContext, CommandIndexProcessor.QUERY_INDEX, QueryEvent.class,
+                            QueryEvent::query);
+                    registry = current;
+                }
+            }
+        }
+        return current;
+    }
+}
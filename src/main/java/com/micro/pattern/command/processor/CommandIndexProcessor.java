@@ -0,0 +1,215 @@
+package com.micro.pattern.command.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generates the command to handler index read by {@link com.micro.pattern.command.CommandProvider} from the classes
+ * annotated with {@link com.micro.pattern.command.CommandEvent}, and the query to handler index read by
+ * {@link com.micro.pattern.command.QueryProvider} from {@link com.micro.pattern.command.QueryEvent}, so handlers are
+ * not discovered by inspecting every bean at startup.
+ * <p>
+ * The build fails when a handler does not implement its handler interface or does not declare its command or query,
+ * when a command or query has two handlers, or when a command or query compiled in the same module has no handler.
+ * The last check can be disabled with {@code -Amicro.cqrs.allowUnhandledCommands=true} for commands and queries
+ * handled remotely.
+ */
+@SupportedAnnotationTypes({CommandIndexProcessor.COMMAND_EVENT, CommandIndexProcessor.QUERY_EVENT})
+@SupportedOptions(CommandIndexProcessor.ALLOW_UNHANDLED_COMMANDS)
+public class CommandIndexProcessor extends AbstractProcessor {
+    public static final String COMMAND_INDEX = "META-INF/micro/command-index";
+    public static final String QUERY_INDEX = "META-INF/micro/query-index";
+    static final String COMMAND_EVENT = "com.micro.pattern.command.CommandEvent";
+    static final String QUERY_EVENT = "com.micro.pattern.command.QueryEvent";
+    static final String ALLOW_UNHANDLED_COMMANDS = "micro.cqrs.allowUnhandledCommands";
+
+    private final List<Kind> kinds = List.of(
+            new Kind(COMMAND_EVENT, "command", "com.micro.pattern.command.Command",
+                    "com.micro.pattern.command.CommandHandler", COMMAND_INDEX),
+            new Kind(QUERY_EVENT, "query", "com.micro.pattern.command.Query",
+                    "com.micro.pattern.command.QueryHandler", QUERY_INDEX));
+    private final Set<String> compiledTypes = new HashSet<>();
+
+    /**
+     * @param annotation Handler annotation
+     * @param attribute  Annotation attribute naming the handled type
+     * @param base       Base class of the handled types
+     * @param handler    Handler interface
+     * @param index      Index resource
+     */
+    private record Kind(String annotation, String attribute, String base, String handler, String index,
+                        Map<String, String> handlers, Map<String, Element> handled) {
+        Kind(String annotation, String attribute, String base, String handler, String index) {
+            this(annotation, attribute, base, handler, index, new TreeMap<>(), new TreeMap<>());
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Kind kind : kinds) {
+            if (roundEnv.processingOver()) {
+                checkUnhandled(kind);
+                writeIndex(kind);
+                continue;
+            }
+            TypeElement annotation = processingEnv.getElementUtils().getTypeElement(kind.annotation());
+            if (annotation == null) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                // The annotations are @Inherited, subclasses of a handler are reported too but are not handlers
+                AnnotationMirror mirror = directAnnotation(element, annotation);
+                if (mirror != null && element.getKind() == ElementKind.CLASS
+                        && !element.getModifiers().contains(Modifier.ABSTRACT)) {
+                    registerHandler(kind, (TypeElement) element, annotation, mirror);
+                }
+            }
+            for (Element element : roundEnv.getRootElements()) {
+                collectHandled(kind, element);
+            }
+        }
+        return false;
+    }
+
+    private void registerHandler(Kind kind, TypeElement handler, TypeElement annotation, AnnotationMirror mirror) {
+        String annotationName = "@" + annotation.getSimpleName();
+        if (!isSubtype(handler, kind.handler())) {
+            error(handler, annotationName + " class " + handler + " must implement " + kind.handler());
+            return;
+        }
+        TypeElement handled = handledBy(kind, mirror);
+        if (handled == null || handled.getQualifiedName().contentEquals(kind.base())) {
+            error(handler, annotationName + " class " + handler + " must declare its " + kind.attribute());
+            return;
+        }
+        String handledName = binaryName(handled);
+        String handlerName = binaryName(handler);
+        String previous = kind.handlers().putIfAbsent(handledName, handlerName);
+        if (previous != null && !previous.equals(handlerName)) {
+            error(handler, handledName + " is handled by " + previous + " and " + handlerName);
+        }
+    }
+
+    private AnnotationMirror directAnnotation(Element element, TypeElement annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().equals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private TypeElement handledBy(Kind kind, AnnotationMirror mirror) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(kind.attribute())) {
+                return (TypeElement) ((DeclaredType) entry.getValue().getValue()).asElement();
+            }
+        }
+        return null;
+    }
+
+    private void collectHandled(Kind kind, Element element) {
+        if (element instanceof TypeElement type) {
+            compiledTypes.add(binaryName(type));
+            if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+                    && !type.getQualifiedName().contentEquals(kind.base()) && isSubtype(type, kind.base())) {
+                kind.handled().put(binaryName(type), type);
+            }
+            for (Element enclosed : type.getEnclosedElements()) {
+                collectHandled(kind, enclosed);
+            }
+        }
+    }
+
+    private void checkUnhandled(Kind kind) {
+        if (Boolean.parseBoolean(processingEnv.getOptions().get(ALLOW_UNHANDLED_COMMANDS))) {
+            return;
+        }
+        kind.handled().forEach((handled, element) -> {
+            if (!kind.handlers().containsKey(handled)) {
+                error(element, handled + " has no @" + kind.annotation().substring(kind.annotation().lastIndexOf('.') + 1)
+                        + " handler");
+            }
+        });
+    }
+
+    /**
+     * Keeps the entries of a previous compilation whose handler was not compiled again and whose classes still
+     * exist, so incremental builds compiling only some sources do not lose handlers.
+     */
+    private void writeIndex(Kind kind) {
+        Map<String, String> index = new TreeMap<>(readPreviousIndex(kind));
+        index.putAll(kind.handlers());
+        if (index.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", kind.index());
+            try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> entry : index.entrySet()) {
+                    writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + kind.index() + ": " + e);
+        }
+    }
+
+    private Map<String, String> readPreviousIndex(Kind kind) {
+        Map<String, String> index = new HashMap<>();
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", kind.index());
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.indexOf('=');
+                    String handler = line.substring(separator + 1);
+                    if (separator > 0 && !compiledTypes.contains(handler) && exists(line.substring(0, separator)) && exists(handler)) {
+                        index.put(line.substring(0, separator), handler);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // No previous index
+        }
+        return index;
+    }
+
+    private boolean exists(String binaryName) {
+        return processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.')) != null;
+    }
+
+    private boolean isSubtype(TypeElement type, String superType) {
+        TypeElement superElement = processingEnv.getElementUtils().getTypeElement(superType);
+        if (superElement == null) {
+            return false;
+        }
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(superElement.asType());
+        return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()), erasure);
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,24 @@
+package com.micro.pattern.idempotency;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Thrown when a TID arrives again while its first delivery is still being handled, or once handled when its result
+ * was not kept.
+ */
+@Getter
+public class DuplicateTidException extends RuntimeException {
+    private final UUID tid;
+
+    public DuplicateTidException(UUID tid) {
+        super("TID " + tid + " is already being handled");
+        this.tid = tid;
+    }
+
+    public DuplicateTidException(UUID tid, String message) {
+        super(message);
+        this.tid = tid;
+    }
+}
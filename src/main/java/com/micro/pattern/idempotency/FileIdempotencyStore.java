@@ -0,0 +1,167 @@
+package com.micro.pattern.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory store that also appends every completed TID to a local file, so duplicates are still recognised after a
+ * restart. A background thread forces the appended TIDs to disk every flush interval, so many TIDs share one fsync;
+ * the TIDs completed during the last interval before a host crash are lost. Results are not persisted: a duplicate
+ * of a TID restored after a restart is rejected with {@link DuplicateTidException} instead of returning its result.
+ * <p>
+ * Record layout: {@code long tid msb | long tid lsb | long expiry epoch millis}. When opened, and once the file holds
+ * twice the maximum entries, the file is rewritten with the unexpired TIDs only.
+ */
+@Slf4j
+public class FileIdempotencyStore extends InMemoryIdempotencyStore implements AutoCloseable {
+    private static final int RECORD_SIZE = 3 * Long.BYTES;
+
+    private final Path file;
+    private final long maxRecords;
+    private final ScheduledExecutorService flusher;
+    private FileChannel channel;
+    private long records;
+    private boolean dirty;
+
+    public FileIdempotencyStore(Path file, int shards, int maxEntries, Duration ttl, Duration flushInterval) {
+        super(shards, maxEntries, ttl);
+        this.file = file;
+        this.maxRecords = 2L * maxEntries;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            records = load();
+            channel = open();
+            log.info("Configure idempotency file: {} -- {} TIDs loaded", file, records);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("idempotency-flush").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void complete(UUID tid, Object result) {
+        super.complete(tid, result);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE)
+                .putLong(tid.getMostSignificantBits())
+                .putLong(tid.getLeastSignificantBits())
+                .putLong(System.currentTimeMillis() + ttlNanos() / 1_000_000)
+                .flip();
+        synchronized (this) {
+            try {
+                channel.write(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            records++;
+            dirty = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        synchronized (this) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private synchronized void flush() {
+        try {
+            if (records > maxRecords) {
+                compact();
+            } else if (dirty) {
+                dirty = false;
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            log.warn("Idempotency file {} not flushed, retrying on next flush", file, e);
+        }
+    }
+
+    /**
+     * Rewrites the file with the TIDs still remembered
+     */
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        long[] kept = {0};
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+            forEachCompleted((tid, expiresAt) -> {
+                buffer.clear()
+                        .putLong(tid.getMostSignificantBits())
+                        .putLong(tid.getLeastSignificantBits())
+                        .putLong(nowMillis + (expiresAt - nowNanos) / 1_000_000)
+                        .flip();
+                try {
+                    out.write(buffer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                kept[0]++;
+            });
+            out.force(false);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open();
+        log.info("Idempotency file {} compacted: {} -> {} TIDs", file, records, kept[0]);
+        records = kept[0];
+        dirty = false;
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Restores the unexpired TIDs of the file and rewrites it with them only
+     *
+     * @return TIDs restored
+     */
+    private int load() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        int loaded = 0;
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            while (buffer.remaining() >= RECORD_SIZE) {
+                UUID tid = new UUID(buffer.getLong(), buffer.getLong());
+                long expiresAt = buffer.getLong();
+                if (expiresAt > nowMillis) {
+                    put(tid, IdempotencyRecord.RESTORED, nowNanos + (expiresAt - nowMillis) * 1_000_000);
+                    out.write(buffer.slice(buffer.position() - RECORD_SIZE, RECORD_SIZE));
+                    loaded++;
+                }
+            }
+            out.force(false);
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return loaded;
+    }
+}
@@ -0,0 +1,17 @@
+package com.micro.pattern.idempotency;
+
+/**
+ * State of a TID already seen by an {@link IdempotencyStore}.
+ *
+ * @param completed {@code true} once handled, {@code false} while still being handled
+ * @param result    Result of the handler, {@code null} when unknown
+ * @param restored  {@code true} when restored without its result, e.g. after a restart
+ */
+public record IdempotencyRecord(boolean completed, Object result, boolean restored) {
+    static final IdempotencyRecord IN_PROGRESS = new IdempotencyRecord(false, null);
+    static final IdempotencyRecord RESTORED = new IdempotencyRecord(true, null, true);
+
+    public IdempotencyRecord(boolean completed, Object result) {
+        this(completed, result, false);
+    }
+}
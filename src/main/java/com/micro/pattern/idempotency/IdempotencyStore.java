@@ -0,0 +1,26 @@
+package com.micro.pattern.idempotency;
+
+import java.util.UUID;
+
+/**
+ * Remembers the TIDs being handled or already handled. Applications may register their own bean to share TIDs
+ * between instances.
+ */
+public interface IdempotencyStore {
+    /**
+     * Claims the TID for the caller.
+     *
+     * @return {@code null} when the caller must handle the TID, otherwise the record of the TID already seen
+     */
+    IdempotencyRecord tryAcquire(UUID tid);
+
+    /**
+     * Marks the TID as handled and keeps its result for duplicates.
+     */
+    void complete(UUID tid, Object result);
+
+    /**
+     * Forgets a TID whose handling failed, so a retry handles it again.
+     */
+    void release(UUID tid);
+}
@@ -0,0 +1,11 @@
+package com.micro.pattern.idempotency;
+
+import java.util.UUID;
+
+/**
+ * Command carrying the TID of the request that produced it. Commands with the same TID are handled once while the
+ * TID is remembered by the {@link IdempotencyStore}.
+ */
+public interface IdempotentCommand {
+    UUID getTid();
+}
@@ -0,0 +1,68 @@
+package com.micro.pattern.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Skips records whose TID was already handled, or is being handled, before they reach the listener. The TID is read
+ * from the record header, as 16 bytes or as text, or from an {@link IdempotentCommand} value. Records without a TID
+ * are always delivered. A failed record releases its TID, so the error handler can redeliver it.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotentRecordInterceptor<K, V> implements RecordInterceptor<K, V> {
+    private final IdempotencyStore idempotencyStore;
+    private final String header;
+
+    @Override
+    public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+        UUID tid = tid(record);
+        if (tid == null || idempotencyStore.tryAcquire(tid) == null) {
+            return record;
+        }
+        log.info("Kafka Record skipped, TID already processed: {} -- topic: {} -- offset: {}", tid, record.topic(), record.offset());
+        return null;
+    }
+
+    @Override
+    public void success(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+        UUID tid = tid(record);
+        if (tid != null) {
+            idempotencyStore.complete(tid, null);
+        }
+    }
+
+    @Override
+    public void failure(ConsumerRecord<K, V> record, Exception exception, Consumer<K, V> consumer) {
+        UUID tid = tid(record);
+        if (tid != null) {
+            idempotencyStore.release(tid);
+        }
+    }
+
+    private UUID tid(ConsumerRecord<K, V> record) {
+        Header tidHeader = record.headers().lastHeader(header);
+        if (tidHeader != null && tidHeader.value() != null) {
+            byte[] value = tidHeader.value();
+            if (value.length == 2 * Long.BYTES) {
+                ByteBuffer buffer = ByteBuffer.wrap(value);
+                return new UUID(buffer.getLong(), buffer.getLong());
+            }
+            try {
+                return UUID.fromString(new String(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                log.warn("Kafka Record with invalid TID header: topic: {} -- offset: {}", record.topic(), record.offset());
+                return null;
+            }
+        }
+        return record.value() instanceof IdempotentCommand command ? command.getTid() : null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.micro.pattern.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps TIDs in insertion-ordered shards, each guarded by its own lock. A shard drops its oldest TIDs once it holds
+ * more than its share of the maximum entries, and TIDs expire after the time to live.
+ */
+@Slf4j
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    private final Shard[] shards;
+    private final int mask;
+    private final long ttlNanos;
+
+    private record Entry(IdempotencyRecord record, long expiresAt) {
+    }
+
+    private static final class Shard extends LinkedHashMap<UUID, Entry> {
+        private final int capacity;
+
+        private Shard(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * @param shards     Number of shards, rounded up to a power of two
+     * @param maxEntries Maximum TIDs kept across all shards
+     * @param ttl        Time a TID is remembered
+     */
+    public InMemoryIdempotencyStore(int shards, int maxEntries, Duration ttl) {
+        int count = shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new Shard(Math.max(1, maxEntries / count));
+        }
+        this.mask = count - 1;
+        this.ttlNanos = ttl.toNanos();
+        log.info("Configure idempotency store: {} shards -- {} max entries -- {} TTL", count, maxEntries, ttl);
+    }
+
+    @Override
+    public IdempotencyRecord tryAcquire(UUID tid) {
+        Shard shard = shard(tid);
+        long now = System.nanoTime();
+        synchronized (shard) {
+            Entry entry = shard.get(tid);
+            if (entry != null && entry.expiresAt() - now > 0) {
+                return entry.record();
+            }
+            shard.remove(tid);
+            shard.put(tid, new Entry(IdempotencyRecord.IN_PROGRESS, now + ttlNanos));
+            return null;
+        }
+    }
+
+    @Override
+    public void complete(UUID tid, Object result) {
+        put(tid, new IdempotencyRecord(true, result), System.nanoTime() + ttlNanos);
+    }
+
+    @Override
+    public void release(UUID tid) {
+        Shard shard = shard(tid);
+        synchronized (shard) {
+            shard.remove(tid);
+        }
+    }
+
+    /**
+     * Stores the record, replacing the previous one. Used to restore TIDs loaded from elsewhere.
+     *
+     * @param expiresAt {@link System#nanoTime()} at which the TID expires
+     */
+    protected void put(UUID tid, IdempotencyRecord record, long expiresAt) {
+        Shard shard = shard(tid);
+        synchronized (shard) {
+            shard.put(tid, new Entry(record, expiresAt));
+        }
+    }
+
+    /**
+     * Visits the completed TIDs not expired yet, one shard at a time.
+     *
+     * @param visitor Receives each TID with the {@link System#nanoTime()} at which it expires
+     */
+    protected void forEachCompleted(BiConsumer<UUID, Long> visitor) {
+        long now = System.nanoTime();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.forEach((tid, entry) -> {
+                    if (entry.record().completed() && entry.expiresAt() - now > 0) {
+                        visitor.accept(tid, entry.expiresAt());
+                    }
+                });
+            }
+        }
+    }
+
+    protected long ttlNanos() {
+        return ttlNanos;
+    }
+
+    private Shard shard(UUID tid) {
+        long bits = tid.getMostSignificantBits() ^ tid.getLeastSignificantBits();
+        int hash = (int) (bits ^ (bits >>> 32));
+        return shards[(hash ^ (hash >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,70 @@
+package com.micro.pattern.saga;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registers the saga meters when a {@link SagaPlan} is compiled, so the orchestrator records on meters it already
+ * holds instead of looking them up by tags.
+ */
+@ConditionalOnProperty(prefix = "pattern", name = "saga.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Component
+public class SagaMetrics {
+    private static final String SAGA_TAG = "saga";
+    private static final String STEP_TAG = "step";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public record SagaMeters(Timer duration, Counter timeouts, Counter failures, AtomicInteger inFlight) {
+    }
+
+    public record StepMeters(Timer duration, Counter failures, Timer compensation, Counter compensationFailures) {
+    }
+
+    public SagaMeters sagaMeters(String saga) {
+        AtomicInteger sagasInFlight = inFlight.computeIfAbsent(saga, name -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("saga.in.flight", value, AtomicInteger::get)
+                    .description("Sagas currently executing")
+                    .tag(SAGA_TAG, name)
+                    .register(meterRegistry);
+            return value;
+        });
+        return new SagaMeters(
+                Timer.builder("saga.duration")
+                        .description("End-to-end saga execution time")
+                        .tag(SAGA_TAG, saga)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("saga.timeouts").tag(SAGA_TAG, saga).register(meterRegistry),
+                Counter.builder("saga.failures").tag(SAGA_TAG, saga).register(meterRegistry),
+                sagasInFlight);
+    }
+
+    public StepMeters stepMeters(String saga, String step) {
+        return new StepMeters(
+                Timer.builder("saga.step.duration")
+                        .description("Saga step handler execution time")
+                        .tags(SAGA_TAG, saga, STEP_TAG, step)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("saga.step.failures").tags(SAGA_TAG, saga, STEP_TAG, step).register(meterRegistry),
+                Timer.builder("saga.compensation.duration")
+                        .description("Saga step compensator execution time, its count is the number of compensations")
+                        .tags(SAGA_TAG, saga, STEP_TAG, step)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("saga.compensation.failures").tags(SAGA_TAG, saga, STEP_TAG, step).register(meterRegistry));
+    }
+}
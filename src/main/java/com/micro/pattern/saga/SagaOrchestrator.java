@@ -1,15 +1,29 @@
 package com.micro.pattern.saga;
 
+import com.micro.pattern.saga.journal.SagaJournal;
+import com.micro.pattern.saga.journal.SagaJournalRecord;
+import com.micro.pattern.saga.journal.SagaRecoverer;
+import com.micro.pattern.saga.journal.UnfinishedSaga;
 import com.micro.pattern.saga.model.Saga;
 import com.micro.pattern.saga.model.SagaException;
-import com.micro.pattern.saga.model.SagaStep;
+import com.micro.pattern.saga.model.SagaResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @ConditionalOnProperty(prefix = "pattern", name = "saga.enabled", havingValue = "true")
 @RequiredArgsConstructor
@@ -17,54 +31,519 @@ import java.util.concurrent.*;
 @Component
 public class SagaOrchestrator {
     private final ApplicationContext applicationContext;
+    private final SagaJournal sagaJournal;
+    private final SagaPlanRegistry sagaPlanRegistry;
+    @Value("${pattern.saga.executor.virtual-threads:true}")
+    private boolean virtualThreads;
+    @Value("${pattern.saga.executor.pool-size:0}")
+    private int poolSize;
+    @Value("${pattern.saga.step.interrupt-wait-ms:1000}")
+    private long stepInterruptWait;
+    @Value("${pattern.saga.compensation.max-attempts:3}")
+    private int compensationMaxAttempts;
+    @Value("${pattern.saga.compensation.backoff-ms:100}")
+    private long compensationBackoff;
+    @Value("${pattern.saga.compensation.backoff-multiplier:2.0}")
+    private double compensationBackoffMultiplier;
+
+    private ExecutorService executorService;
+    private ExecutorService stepExecutor;
+    private ScheduledThreadPoolExecutor timeoutScheduler;
+
+    /**
+     * Sagas share a single executor instead of creating one per call. Virtual threads are used by default, so a
+     * blocked step costs no platform thread; a fixed pool can be configured with
+     * {@code pattern.saga.executor.virtual-threads=false} and {@code pattern.saga.executor.pool-size}.
+     * <p>
+     * The parallel steps of graph sagas always run on virtual threads, a saga waiting for its steps must not hold the
+     * pool thread they need.
+     */
+    @PostConstruct
+    void init() {
+        if (virtualThreads) {
+            log.info("Configure SAGA executor: virtual threads");
+            executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("saga-", 0).factory());
+        } else {
+            int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+            log.info("Configure SAGA executor: {} platform threads", threads);
+            executorService = Executors.newFixedThreadPool(threads);
+        }
+        stepExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("saga-step-", 0).factory());
+        timeoutScheduler = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("saga-timeout").daemon().factory());
+        timeoutScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    void destroy() {
+        executorService.close();
+        stepExecutor.close();
+        timeoutScheduler.shutdownNow();
+    }
 
     public <T> T orchestrate(Saga<T> saga, int secondTimeout) {
-        try (ExecutorService executorService = Executors.newSingleThreadExecutor()) {
-            Future<T> future = executorService.submit(() -> orchestrate(saga));
+        return orchestrate(saga, Duration.ofSeconds(secondTimeout));
+    }
+
+    /**
+     * Executes the saga within the given timeout. The deadline is stored in the payload, each step runs within the
+     * time left and, when it declares {@link com.micro.pattern.saga.model.SagaStep#getTimeout()}, within its own
+     * timeout. A step exceeding its deadline fails and the saga is compensated.
+     *
+     * @param saga    Saga to execute
+     * @param timeout Maximum time for the whole saga
+     * @param <T>     Result type
+     * @return Saga result
+     */
+    public <T> T orchestrate(Saga<T> saga, Duration timeout) {
+        SagaPlan<T> plan = sagaPlanRegistry.plan(saga);
+        saga.getPayload().setDeadline(timeout);
+        Future<T> future = executorService.submit(() -> orchestrate(saga, plan, new BitSet()));
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SagaException(e);
+        } catch (TimeoutException e) {
+            plan.getMeters().timeouts().increment();
+            future.cancel(true);
+            throw new SagaException(e);
+        } catch (ExecutionException e) {
+            future.cancel(true);
+            throw new SagaException(e);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #orchestrate(Saga, int)}. When the timeout elapses the running step is
+     * interrupted, compensation is triggered and the returned future fails with a {@link SagaException}.
+     *
+     * @param saga    Saga to execute
+     * @param timeout Maximum time for the whole saga
+     * @param <T>     Result type
+     * @return Future completed with the saga result
+     */
+    public <T> CompletableFuture<T> orchestrateAsync(Saga<T> saga, Duration timeout) {
+        return orchestrateAsync(saga, timeout, new CompletableFuture<>());
+    }
+
+    /**
+     * @param finished Completed once the saga stopped running, after the compensation of a timed out saga
+     */
+    private <T> CompletableFuture<T> orchestrateAsync(Saga<T> saga, Duration timeout, CompletableFuture<Void> finished) {
+        SagaPlan<T> plan = sagaPlanRegistry.plan(saga);
+        saga.getPayload().setDeadline(timeout);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Claimed by the task when it starts, or by the timeout when the task never started
+        AtomicBoolean started = new AtomicBoolean();
+        Future<?> future = executorService.submit(() -> {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
             try {
-                return future.get(secondTimeout, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new SagaException(e);
-            } catch (TimeoutException | ExecutionException e) {
-                future.cancel(true);
-                throw new SagaException(e);
+                result.complete(orchestrate(saga, plan, new BitSet()));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                finished.complete(null);
+            }
+        });
+        return result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+                .exceptionallyCompose(e -> {
+                    if (e instanceof TimeoutException) {
+                        plan.getMeters().timeouts().increment();
+                    }
+                    if (started.compareAndSet(false, true)) {
+                        finished.complete(null);
+                    } else {
+                        future.cancel(true);
+                    }
+                    return CompletableFuture.failedFuture(e instanceof SagaException ? e : new SagaException(e));
+                });
+    }
+
+    /**
+     * Executes many sagas with at most {@code concurrency} of them running at once. The calling thread blocks before
+     * submitting a saga while all permits are taken, so a large collection never floods the executor. A permit is
+     * released once its saga stopped running, a timed out saga keeps it until its compensation finished.
+     *
+     * @param sagas       Sagas to execute
+     * @param concurrency Maximum sagas running at the same time
+     * @param timeout     Timeout of every saga
+     * @param <T>         Result type
+     * @return One result per saga, in the order of the collection
+     */
+    public <T> List<SagaResult<T>> orchestrateAll(Collection<Saga<T>> sagas, int concurrency, Duration timeout) {
+        checkConcurrency(concurrency);
+        Semaphore permits = new Semaphore(concurrency);
+        List<CompletableFuture<SagaResult<T>>> results = new ArrayList<>(sagas.size());
+        try {
+            for (Saga<T> saga : sagas) {
+                permits.acquire();
+                results.add(execute(saga, timeout).whenComplete((result, e) -> permits.release()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SagaException(e);
+        }
+        List<SagaResult<T>> sagaResults = new ArrayList<>(results.size());
+        for (CompletableFuture<SagaResult<T>> result : results) {
+            sagaResults.add(result.join());
+        }
+        return sagaResults;
+    }
+
+    /**
+     * Reactive variant of {@link #orchestrateAll(Collection, int, Duration)}: the returned subscriber requests sagas
+     * from the publisher only as running ones finish.
+     *
+     * @param concurrency    Maximum sagas running at the same time
+     * @param timeout        Timeout of every saga
+     * @param resultConsumer Receives every result, from the thread that finished the saga
+     * @param <T>            Result type
+     * @return Subscriber to attach to a saga publisher
+     */
+    public <T> SagaSubscriber<T> subscriber(int concurrency, Duration timeout, Consumer<SagaResult<T>> resultConsumer) {
+        checkConcurrency(concurrency);
+        return new SagaSubscriber<>(this, concurrency, timeout, resultConsumer);
+    }
+
+    /**
+     * Executes a saga asynchronously, failures are captured in the result instead of failing the future. The future
+     * completes once the saga stopped running, so callers bounding concurrency never exceed their limit.
+     */
+    <T> CompletableFuture<SagaResult<T>> execute(Saga<T> saga, Duration timeout) {
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        CompletableFuture<T> future;
+        try {
+            future = orchestrateAsync(saga, timeout, finished);
+        } catch (RuntimeException e) {
+            finished.complete(null);
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((result, e) -> new SagaResult<>(saga, result,
+                        e instanceof CompletionException && e.getCause() != null ? e.getCause() : e))
+                .thenCombine(finished, (result, done) -> result);
+    }
+
+    private static void checkConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("SAGA concurrency must be at least 1: " + concurrency);
+        }
+    }
+
+    /**
+     * Resumes or compensates the sagas the journal reports as unfinished, using the {@link SagaRecoverer} registered
+     * for each saga name. Sagas without a recoverer stay in the journal.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        Collection<UnfinishedSaga> unfinished = sagaJournal.unfinished();
+        if (unfinished.isEmpty()) {
+            return;
+        }
+        Map<String, SagaRecoverer<?>> recoverers = new HashMap<>();
+        for (SagaRecoverer<?> recoverer : applicationContext.getBeansOfType(SagaRecoverer.class).values()) {
+            recoverers.put(recoverer.getSagaName(), recoverer);
+        }
+        log.info("Recovering {} unfinished SAGA", unfinished.size());
+        for (UnfinishedSaga unfinishedSaga : unfinished) {
+            SagaRecoverer<?> recoverer = recoverers.get(unfinishedSaga.name());
+            if (recoverer == null) {
+                log.warn("Unfinished SAGA {} - {} has no recoverer", unfinishedSaga.key(), unfinishedSaga.name());
+            } else {
+                executorService.execute(() -> recover(recoverer, unfinishedSaga));
+            }
+        }
+    }
+
+    private <T> void recover(SagaRecoverer<T> recoverer, UnfinishedSaga unfinishedSaga) {
+        try {
+            Saga<T> saga = recoverer.rebuild(unfinishedSaga.key());
+            if (saga == null) {
+                log.warn("Unfinished SAGA {} - {} was not rebuilt", unfinishedSaga.key(), unfinishedSaga.name());
+                return;
+            }
+            SagaPlan<T> plan = sagaPlanRegistry.plan(saga);
+            if (recoverer.isResumable()) {
+                log.info("Resuming SAGA {} - {}", saga.getKey(), saga.getName());
+                BitSet completed = new BitSet(plan.getSteps().length);
+                unfinishedSaga.completedSteps().stream().mapToInt(plan::indexOf).filter(i -> i >= 0).forEach(completed::set);
+                orchestrate(saga, plan, completed);
+            } else {
+                compensate(saga, plan, unfinishedSaga.startedSteps().reversed().stream().mapToInt(plan::indexOf)
+                        .filter(i -> i >= 0).toArray());
+                saga.setIsCompleteExecution(true);
+            }
+        } catch (Exception e) {
+            log.error("Recovery of SAGA {} - {} failed", unfinishedSaga.key(), unfinishedSaga.name(), e);
+        }
+    }
+
+    private <T> T orchestrate(Saga<T> saga, SagaPlan<T> plan, BitSet completedSteps) {
+        SagaMetrics.SagaMeters meters = plan.getMeters();
+        meters.inFlight().incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            journal(saga, SagaJournalRecord.Event.SAGA_STARTED, null);
+            if (plan.isGraph()) {
+                orchestrateGraph(saga, plan, completedSteps);
+            } else {
+                orchestrateSequence(saga, plan, completedSteps);
             }
+            saga.setIsCompleteExecution(true);
+            journal(saga, SagaJournalRecord.Event.SAGA_COMPLETED, null);
+            return saga.getPayload().getResult();
+        } catch (RuntimeException e) {
+            meters.failures().increment();
+            throw e;
+        } finally {
+            meters.duration().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meters.inFlight().decrementAndGet();
         }
     }
 
-    private <T> T orchestrate(Saga<T> saga) {
-        for (Class<? extends SagaStep<T>> sagaStep : saga.getRequiredStep()) {
-            if (Thread.interrupted()) {
-                triggerCompensation(saga);
+    private <T> void orchestrateSequence(Saga<T> saga, SagaPlan<T> plan, BitSet completedSteps) {
+        SagaPlan.Step<T>[] steps = plan.getSteps();
+        for (int i = 0; i < steps.length; i++) {
+            if (completedSteps.get(i)) {
+                continue;
             }
-            saga.setCurrentStep(sagaStep);
+            if (Thread.interrupted() || saga.getPayload().remainingNanos() <= 0) {
+                triggerCompensation(saga, plan, i - 1);
+                saga.setIsCompleteExecution(true);
+                throw new SagaException(new TimeoutException("SAGA " + saga.getName() + " deadline exceeded before step "
+                        + steps[i].name()));
+            }
+            saga.setCurrentStep(steps[i].type());
             try {
-                SagaStep<T> step = applicationContext.getBean(sagaStep);
-                log.info("Executing SAGA {} - {} : Step {}", saga.getKey(), saga.getName(), step.getName());
-                step.getHandler().handle(saga.getPayload());
+                executeStep(saga, steps[i]);
             } catch (Exception e) {
-                triggerCompensation(saga);
+                triggerCompensation(saga, plan, i);
                 saga.setIsCompleteExecution(true);
                 throw e;
             }
         }
-        saga.setIsCompleteExecution(true);
-        return saga.getPayload().getResult();
     }
 
-    private <T> void triggerCompensation(Saga<T> saga) {
-        log.info("Triggering compensator SAGA {} : {}", saga.getKey(), saga.getName());
-        int index = saga.getRequiredStep().indexOf(saga.getCurrentStep());
-        for (int i = index; i >= 0; i--) {
-            Class<? extends SagaStep<T>> sagaStep = saga.getRequiredStep().get(i);
-            SagaStep<T> bean = applicationContext.getBean(sagaStep);
-            if (bean.getCompensator() != null) {
-                log.info("Triggering Compensator SAGA {} - {} : Step {}", saga.getKey(), saga.getName(), bean.getName());
-                bean.getCompensator().handle(saga.getPayload());
+    /**
+     * Runs every step as soon as its dependencies completed. On failure or interruption no new step is started, the
+     * steps already running are awaited and every step that ran is compensated, newest first: like a sequence, the
+     * failed or interrupted step is compensated too. A step finishes after all of its dependencies, so the reverse
+     * finishing order is also a reverse dependency order.
+     * <p>
+     * When the saga is interrupted the running steps are interrupted too and awaited for at most
+     * {@code pattern.saga.step.interrupt-wait-ms}; a step still running after that is not compensated.
+     */
+    private <T> void orchestrateGraph(Saga<T> saga, SagaPlan<T> plan, BitSet completedSteps) {
+        SagaPlan.Step<T>[] steps = plan.getSteps();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[steps.length];
+        Deque<Integer> ran = new ConcurrentLinkedDeque<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        CompletableFuture<Void> start = new CompletableFuture<>();
+        Set<Thread> running = ConcurrentHashMap.newKeySet();
+        for (SagaPlan.Step<T> step : steps) {
+            if (completedSteps.get(step.index())) {
+                ran.push(step.index());
+                futures[step.index()] = CompletableFuture.completedFuture(null);
+                continue;
+            }
+            int[] dependencies = step.dependencies();
+            CompletableFuture<?>[] upstream = dependencies.length == 0 ? new CompletableFuture<?>[]{start}
+                    : new CompletableFuture<?>[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                upstream[i] = futures[dependencies[i]];
+            }
+            futures[step.index()] = CompletableFuture.allOf(upstream).thenRunAsync(() -> {
+                if (failure.get() != null) {
+                    throw new CancellationException();
+                }
+                saga.setCurrentStep(step.type());
+                running.add(Thread.currentThread());
+                try {
+                    executeStep(saga, step);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                    throw e;
+                } finally {
+                    running.remove(Thread.currentThread());
+                    ran.push(step.index());
+                }
+            }, stepExecutor);
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures);
+        start.complete(null);
+        try {
+            all.get();
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            running.forEach(Thread::interrupt);
+            try {
+                all.handle((value, ex) -> null).get(stepInterruptWait, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException | InterruptedException ex) {
+                log.warn("SAGA {} - {} : {} steps still running, not compensated", saga.getKey(), saga.getName(),
+                        running.size());
+            }
+            compensate(saga, plan, ran.stream().mapToInt(Integer::intValue).toArray());
+            saga.setIsCompleteExecution(true);
+            throw new SagaException(e);
+        } catch (ExecutionException e) {
+            compensate(saga, plan, ran.stream().mapToInt(Integer::intValue).toArray());
+            saga.setIsCompleteExecution(true);
+            if (failure.get() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SagaException(failure.get() != null ? failure.get() : e.getCause());
+        }
+    }
+
+    private <T> void executeStep(Saga<T> saga, SagaPlan.Step<T> step) {
+        log.info("Executing SAGA {} - {} : Step {}", saga.getKey(), saga.getName(), step.name());
+        journal(saga, SagaJournalRecord.Event.STEP_STARTED, step);
+        long start = System.nanoTime();
+        try {
+            if (step.timeoutNanos() > 0) {
+                handleWithinTimeout(saga, step);
             } else {
-                log.info("SAGA {} - {} : Step {}", saga.getKey(), saga.getName(), bean.getName());
+                step.handler().handle(saga.getPayload());
+            }
+        } catch (RuntimeException e) {
+            step.meters().failures().increment();
+            throw e;
+        } finally {
+            step.meters().duration().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        journal(saga, SagaJournalRecord.Event.STEP_COMPLETED, step);
+    }
+
+    /**
+     * Runs the handler of a step declaring its own timeout on the calling thread, so the handler keeps its thread
+     * context, and interrupts it when the step timeout or the time left to the saga elapses.
+     */
+    private <T> void handleWithinTimeout(Saga<T> saga, SagaPlan.Step<T> step) {
+        long timeout = Math.min(step.timeoutNanos(), saga.getPayload().remainingNanos());
+        StepDeadline deadline = new StepDeadline(Thread.currentThread());
+        deadline.timer = timeoutScheduler.schedule(deadline, timeout, TimeUnit.NANOSECONDS);
+        try {
+            step.handler().handle(saga.getPayload());
+        } catch (RuntimeException e) {
+            if (deadline.finish()) {
+                throw new SagaException("SAGA " + saga.getName() + " : Step " + step.name() + " timed out", e);
+            }
+            throw e;
+        } finally {
+            deadline.finish();
+        }
+        if (deadline.finish()) {
+            throw new SagaException("SAGA " + saga.getName() + " : Step " + step.name() + " timed out");
+        }
+    }
+
+    /**
+     * Interrupts the step thread when it fires, unless the step finished first.
+     */
+    private static final class StepDeadline implements Runnable {
+        private final Thread thread;
+        private ScheduledFuture<?> timer;
+        private boolean running = true;
+        private boolean expired;
+
+        private StepDeadline(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (running) {
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Stops the deadline and clears the interrupt it raised.
+         *
+         * @return Whether the deadline expired before the step finished
+         */
+        synchronized boolean finish() {
+            if (running) {
+                running = false;
+                timer.cancel(false);
+                if (expired) {
+                    Thread.interrupted();
+                }
+            }
+            return expired;
+        }
+    }
+
+    /**
+     * Compensates the steps from {@code index} back to the first one.
+     */
+    private <T> void triggerCompensation(Saga<T> saga, SagaPlan<T> plan, int index) {
+        int[] indexes = new int[index + 1];
+        for (int i = 0; i <= index; i++) {
+            indexes[i] = index - i;
+        }
+        compensate(saga, plan, indexes);
+    }
+
+    /**
+     * Compensates the given step indexes in order. A failing compensator is retried with exponential backoff; the
+     * retries are scheduled instead of sleeping, and the calling thread only waits for the whole chain to finish.
+     * A compensator failing every attempt is logged and skipped, so earlier steps still release their resources,
+     * and the saga stays unfinished in the journal.
+     */
+    private <T> void compensate(Saga<T> saga, SagaPlan<T> plan, int[] indexes) {
+        log.info("Triggering compensator SAGA {} : {}", saga.getKey(), saga.getName());
+        // The saga may be compensated because it was interrupted, compensators must still be able to block
+        boolean interrupted = Thread.interrupted();
+        CompletableFuture<Boolean> chain = CompletableFuture.completedFuture(true);
+        for (int index : indexes) {
+            SagaPlan.Step<T> step = plan.getSteps()[index];
+            chain = chain.thenCompose(compensated -> compensateStep(saga, step, 1)
+                    .thenApply(stepCompensated -> compensated && stepCompensated));
+        }
+        if (Boolean.TRUE.equals(chain.join())) {
+            journal(saga, SagaJournalRecord.Event.SAGA_COMPENSATED, null);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<Boolean> compensateStep(Saga<T> saga, SagaPlan.Step<T> step, int attempt) {
+        if (step.compensator() == null) {
+            log.info("SAGA {} - {} : Step {}", saga.getKey(), saga.getName(), step.name());
+            journal(saga, SagaJournalRecord.Event.STEP_COMPENSATED, step);
+            return CompletableFuture.completedFuture(true);
+        }
+        log.info("Triggering Compensator SAGA {} - {} : Step {}", saga.getKey(), saga.getName(), step.name());
+        long start = System.nanoTime();
+        try {
+            step.compensator().handle(saga.getPayload());
+        } catch (RuntimeException e) {
+            step.meters().compensationFailures().increment();
+            if (attempt >= compensationMaxAttempts) {
+                log.error("Compensator SAGA {} - {} : Step {} failed after {} attempts", saga.getKey(), saga.getName(),
+                        step.name(), attempt, e);
+                return CompletableFuture.completedFuture(false);
             }
+            long backoff = (long) (compensationBackoff * Math.pow(compensationBackoffMultiplier, attempt - 1));
+            log.warn("Compensator SAGA {} - {} : Step {} failed, retrying in {} ms", saga.getKey(), saga.getName(),
+                    step.name(), backoff, e);
+            return CompletableFuture.supplyAsync(() -> attempt + 1,
+                            CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, stepExecutor))
+                    .thenCompose(next -> compensateStep(saga, step, next));
+        } finally {
+            step.meters().compensation().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        journal(saga, SagaJournalRecord.Event.STEP_COMPENSATED, step);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    private <T> void journal(Saga<T> saga, SagaJournalRecord.Event event, SagaPlan.Step<T> step) {
+        if (saga.getKey() != null) {
+            sagaJournal.append(new SagaJournalRecord(saga.getKey(), saga.getName(), event, step == null ? null : step.typeName()));
         }
     }
 }
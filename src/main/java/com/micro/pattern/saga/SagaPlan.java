@@ -0,0 +1,112 @@
+package com.micro.pattern.saga;
+
+import com.micro.pattern.saga.model.Saga;
+import com.micro.pattern.saga.model.SagaException;
+import com.micro.pattern.saga.model.SagaStep;
+import com.micro.pattern.saga.model.SagaStepCompensator;
+import com.micro.pattern.saga.model.SagaStepHandler;
+import lombok.Getter;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+
+import java.util.*;
+
+/**
+ * Steps of a saga resolved once: beans, handlers, compensators and dependencies are looked up when the plan is
+ * compiled, the orchestrator then works with array indexes only.
+ *
+ * @param <T> Saga result type
+ */
+@Getter
+public final class SagaPlan<T> {
+    private final String name;
+    private final List<Class<? extends SagaStep<T>>> requiredStep;
+    private final Map<Class<? extends SagaStep<T>>, List<Class<? extends SagaStep<T>>>> stepDependency;
+    private final Step<T>[] steps;
+    private final boolean graph;
+    private final SagaMetrics.SagaMeters meters;
+
+    private SagaPlan(Saga<T> saga, Step<T>[] steps, SagaMetrics.SagaMeters meters) {
+        this.name = saga.getName();
+        this.requiredStep = saga.getRequiredStep();
+        this.stepDependency = saga.getStepDependency();
+        this.steps = steps;
+        this.graph = saga.hasStepDependency();
+        this.meters = meters;
+    }
+
+    /**
+     * @param index        Position in {@link Saga#getRequiredStep()}
+     * @param type         Step bean class
+     * @param typeName     Step class name, used by the journal
+     * @param name         Step name
+     * @param dependencies Indexes of the steps this step depends on
+     * @param timeoutNanos Step timeout, 0 when the step is only bounded by the saga deadline
+     * @param meters       Step meters
+     */
+    public record Step<T>(int index, Class<? extends SagaStep<T>> type, String typeName, String name,
+                          SagaStepHandler<T> handler, SagaStepCompensator<T> compensator, int[] dependencies,
+                          long timeoutNanos, SagaMetrics.StepMeters meters) {
+    }
+
+    /**
+     * @param typeName Step class name
+     * @return Step index, -1 when the step is not part of the plan
+     */
+    public int indexOf(String typeName) {
+        for (Step<T> step : steps) {
+            if (step.typeName().equals(typeName)) {
+                return step.index();
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> SagaPlan<T> compile(Saga<T> saga, ApplicationContext applicationContext, SagaMetrics sagaMetrics) {
+        List<Class<? extends SagaStep<T>>> requiredStep = saga.getRequiredStep();
+        if (requiredStep == null || requiredStep.isEmpty()) {
+            throw new SagaException("SAGA " + saga.getName() + " has no steps");
+        }
+        String sagaName = Objects.requireNonNullElse(saga.getName(), "");
+        Map<Class<? extends SagaStep<T>>, Integer> indexes = new HashMap<>();
+        Step<T>[] steps = new Step[requiredStep.size()];
+        for (int i = 0; i < steps.length; i++) {
+            Class<? extends SagaStep<T>> type = requiredStep.get(i);
+            if (indexes.putIfAbsent(type, i) != null) {
+                throw new SagaException("SAGA " + saga.getName() + ": step " + type.getName() + " is declared twice");
+            }
+            SagaStep<T> bean;
+            try {
+                bean = applicationContext.getBean(type);
+            } catch (BeansException e) {
+                throw new SagaException("SAGA " + saga.getName() + ": step " + type.getName() + " is not available", e);
+            }
+            validate(bean, type.getName());
+            List<Class<? extends SagaStep<T>>> dependencies = saga.hasStepDependency()
+                    ? saga.getStepDependency().getOrDefault(type, List.of()) : List.of();
+            int[] upstream = new int[dependencies.size()];
+            for (int d = 0; d < upstream.length; d++) {
+                Integer index = indexes.get(dependencies.get(d));
+                if (index == null || index == i) {
+                    throw new SagaException("SAGA " + saga.getName() + ": step " + type.getName() + " depends on "
+                            + dependencies.get(d).getName() + ", which is not declared before it");
+                }
+                upstream[d] = index;
+            }
+            steps[i] = new Step<>(i, type, type.getName(), bean.getName(), bean.getHandler(), bean.getCompensator(), upstream,
+                    bean.getTimeout() == null ? 0 : bean.getTimeout().toNanos(),
+                    sagaMetrics.stepMeters(sagaName, bean.getName()));
+        }
+        return new SagaPlan<>(saga, steps, sagaMetrics.sagaMeters(sagaName));
+    }
+
+    static void validate(SagaStep<?> step, String beanName) {
+        if (step.getName() == null || step.getName().isBlank()) {
+            throw new SagaException("SAGA step " + beanName + " has no name");
+        }
+        if (step.getHandler() == null) {
+            throw new SagaException("SAGA step " + beanName + " has no handler");
+        }
+    }
+}
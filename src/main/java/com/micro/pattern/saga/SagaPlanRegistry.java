@@ -0,0 +1,55 @@
+package com.micro.pattern.saga;
+
+import com.micro.pattern.saga.model.Saga;
+import com.micro.pattern.saga.model.SagaStep;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles a {@link SagaPlan} per saga name, steps and dependencies on first use, so sagas sharing a name with
+ * different steps each keep their own plan. Declare the steps in constants: equal lists are then the same instance
+ * and found without comparing them. The lists must not change once the saga ran. Every {@link SagaStep} bean is validated at startup, so a
+ * step without name or handler fails the boot instead of a running transaction.
+ */
+@ConditionalOnProperty(prefix = "pattern", name = "saga.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+@Component
+public class SagaPlanRegistry implements SmartInitializingSingleton {
+    private final ApplicationContext applicationContext;
+    private final SagaMetrics sagaMetrics;
+    private final Map<PlanKey, SagaPlan<?>> plans = new ConcurrentHashMap<>();
+
+    private record PlanKey(String name, List<?> requiredStep, Map<?, ?> stepDependency) {
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> SagaPlan<T> plan(Saga<T> saga) {
+        PlanKey key = new PlanKey(Objects.requireNonNullElse(saga.getName(), ""), saga.getRequiredStep(), saga.getStepDependency());
+        SagaPlan<T> plan = (SagaPlan<T>) plans.get(key);
+        if (plan == null) {
+            plan = (SagaPlan<T>) plans.computeIfAbsent(key, k -> {
+                log.info("Compiling SAGA plan {}", k.name());
+                return SagaPlan.compile(saga, applicationContext, sagaMetrics);
+            });
+        }
+        return plan;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<String, SagaStep> steps = applicationContext.getBeansOfType(SagaStep.class);
+        steps.forEach((beanName, step) -> SagaPlan.validate(step, beanName));
+        log.info("Validated {} SAGA steps", steps.size());
+    }
+}
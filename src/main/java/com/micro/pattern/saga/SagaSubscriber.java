@@ -0,0 +1,79 @@
+package com.micro.pattern.saga;
+
+import com.micro.pattern.saga.model.Saga;
+import com.micro.pattern.saga.model.SagaResult;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Executes the sagas published to it, requesting a new one only when an executing saga finishes, so the publisher
+ * never gets ahead of the configured concurrency.
+ *
+ * @param <T> Result type
+ */
+@Slf4j
+public class SagaSubscriber<T> implements Flow.Subscriber<Saga<T>> {
+    private final SagaOrchestrator sagaOrchestrator;
+    private final int concurrency;
+    private final Duration timeout;
+    private final Consumer<SagaResult<T>> resultConsumer;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * Completed once the publisher completed and every received saga finished
+     */
+    @Getter
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private Flow.Subscription subscription;
+    private volatile boolean upstreamDone;
+
+    SagaSubscriber(SagaOrchestrator sagaOrchestrator, int concurrency, Duration timeout, Consumer<SagaResult<T>> resultConsumer) {
+        this.sagaOrchestrator = sagaOrchestrator;
+        this.concurrency = concurrency;
+        this.timeout = timeout;
+        this.resultConsumer = resultConsumer;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(concurrency);
+    }
+
+    @Override
+    public void onNext(Saga<T> saga) {
+        inFlight.incrementAndGet();
+        sagaOrchestrator.execute(saga, timeout).whenComplete((result, e) -> {
+            try {
+                resultConsumer.accept(result);
+            } catch (Exception ex) {
+                log.error("SAGA {} - {} result consumer failed", saga.getKey(), saga.getName(), ex);
+            }
+            if (inFlight.decrementAndGet() == 0 && upstreamDone) {
+                completion.complete(null);
+            } else {
+                subscription.request(1);
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        upstreamDone = true;
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        if (inFlight.get() == 0) {
+            completion.complete(null);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.micro.pattern.saga.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal stored in memory-mapped segment files. Appending copies the record into the mapped segment,
+ * a background thread forces the written pages to disk every flush interval, so many appends share one fsync.
+ * <p>
+ * Record layout: {@code int length | int crc | byte event | long key msb | long key lsb | short saga length | saga |
+ * short step length | step}, the CRC32C covering the bytes after it. A zero length marks the end of a segment. The
+ * length is written last, and replay stops reading a segment at the first record failing its CRC, so a record torn
+ * by a crash is never replayed.
+ * <p>
+ * When a segment is full, the segments older than the first segment of every saga in flight are deleted. When
+ * opened, all segments are replayed, the records of unfinished sagas are copied to a new segment and the old segments
+ * are deleted. A saga that never finishes keeps its segments, and the ones after them, until the next open.
+ */
+@Slf4j
+public class MappedSagaJournal implements SagaJournal, AutoCloseable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Byte.BYTES + 2 * Long.BYTES + 2 * Short.BYTES;
+    private static final int BODY_OFFSET = 2 * Integer.BYTES;
+    private static final byte[] NO_STEP = new byte[0];
+    private static final SagaJournalRecord.Event[] EVENTS = SagaJournalRecord.Event.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Map<String, byte[]> encodedNames = new ConcurrentHashMap<>();
+    private final Collection<UnfinishedSaga> unfinished;
+    /**
+     * First segment holding a record of each saga in flight
+     */
+    private final Map<UUID, Long> firstSegments = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    private long segmentIndex;
+    private long oldestSegment;
+    private volatile MappedByteBuffer segment;
+    private volatile boolean dirty;
+
+    public MappedSagaJournal(Path directory, int segmentSize, Duration flushInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments();
+            Map<UUID, UnfinishedSaga> sagas = replay(segments);
+            unfinished = List.copyOf(sagas.values());
+            segmentIndex = segments.isEmpty() ? 0 : index(segments.getLast()) + 1;
+            oldestSegment = segmentIndex;
+            segment = openSegment(segmentIndex);
+            carryForward(sagas.values());
+            segment.force();
+            for (Path path : segments) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Configure SAGA journal: {} -- {} unfinished", directory, unfinished.size());
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("saga-journal-flush").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void append(SagaJournalRecord record) {
+        // Sagas without name are planned under the empty name, see SagaPlanRegistry
+        byte[] saga = encode(Objects.requireNonNullElse(record.saga(), ""));
+        byte[] step = record.step() == null ? NO_STEP : encode(record.step());
+        int length = HEADER_SIZE + saga.length + step.length;
+        synchronized (this) {
+            // Keep room for the zero length that marks the end of the segment
+            if (segment.remaining() < length + Integer.BYTES) {
+                roll(length);
+            }
+            if (record.event().isTerminal()) {
+                firstSegments.remove(record.key());
+            } else {
+                firstSegments.putIfAbsent(record.key(), segmentIndex);
+            }
+            int start = segment.position();
+            segment.position(start + BODY_OFFSET)
+                    .put((byte) record.event().ordinal())
+                    .putLong(record.key().getMostSignificantBits())
+                    .putLong(record.key().getLeastSignificantBits())
+                    .putShort((short) saga.length)
+                    .put(saga)
+                    .putShort((short) step.length)
+                    .put(step);
+            segment.putInt(start + Integer.BYTES, crc(segment, start, length));
+            segment.putInt(start, length);
+            dirty = true;
+        }
+    }
+
+    @Override
+    public Collection<UnfinishedSaga> unfinished() {
+        return unfinished;
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        synchronized (this) {
+            segment.force();
+        }
+    }
+
+    private void flush() {
+        if (dirty) {
+            dirty = false;
+            segment.force();
+        }
+    }
+
+    private void roll(int length) {
+        if (length + Integer.BYTES > segmentSize) {
+            throw new IllegalStateException("SAGA journal record of " + length + " bytes exceeds segment size " + segmentSize);
+        }
+        segment.force();
+        try {
+            segment = openSegment(++segmentIndex);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        reclaim();
+    }
+
+    /**
+     * Deletes the segments no saga in flight has records in. The mapping of a deleted segment is released once its
+     * buffer is collected.
+     */
+    private void reclaim() {
+        long needed = segmentIndex;
+        for (long first : firstSegments.values()) {
+            needed = Math.min(needed, first);
+        }
+        for (; oldestSegment < needed; oldestSegment++) {
+            try {
+                Files.deleteIfExists(segmentPath(oldestSegment));
+            } catch (IOException e) {
+                log.warn("SAGA journal segment {} not deleted, retrying on next roll", oldestSegment, e);
+                return;
+            }
+        }
+    }
+
+    private byte[] encode(String name) {
+        return encodedNames.computeIfAbsent(name, value -> {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            if (encoded.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("SAGA journal name of " + encoded.length + " bytes exceeds "
+                        + Short.MAX_VALUE + " bytes");
+            }
+            return encoded;
+        });
+    }
+
+    private void carryForward(Collection<UnfinishedSaga> sagas) {
+        for (UnfinishedSaga saga : sagas) {
+            append(new SagaJournalRecord(saga.key(), saga.name(), SagaJournalRecord.Event.SAGA_STARTED, null));
+            for (String step : saga.startedSteps()) {
+                append(new SagaJournalRecord(saga.key(), saga.name(), SagaJournalRecord.Event.STEP_STARTED, step));
+            }
+            for (String step : saga.completedSteps()) {
+                append(new SagaJournalRecord(saga.key(), saga.name(), SagaJournalRecord.Event.STEP_COMPLETED, step));
+            }
+        }
+    }
+
+    private Map<UUID, UnfinishedSaga> replay(List<Path> segments) throws IOException {
+        Map<UUID, UnfinishedSaga> sagas = new LinkedHashMap<>();
+        for (Path path : segments) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int start = buffer.position();
+                    int length = buffer.getInt();
+                    if (length < HEADER_SIZE || length - Integer.BYTES > buffer.remaining()) {
+                        break;
+                    }
+                    if (buffer.getInt() != crc(buffer, start, length)) {
+                        log.warn("SAGA journal {} corrupt at {}", path, start);
+                        break;
+                    }
+                    try {
+                        SagaJournalRecord record = read(buffer);
+                        if (record.event().isTerminal()) {
+                            sagas.remove(record.key());
+                        } else {
+                            sagas.computeIfAbsent(record.key(), key -> new UnfinishedSaga(key, record.saga())).apply(record);
+                        }
+                    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                        log.warn("SAGA journal {} truncated at {}", path, start);
+                        break;
+                    }
+                    buffer.position(start + length);
+                }
+            }
+        }
+        return sagas;
+    }
+
+    private static int crc(ByteBuffer buffer, int start, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + BODY_OFFSET, length - BODY_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private SagaJournalRecord read(ByteBuffer buffer) {
+        SagaJournalRecord.Event event = EVENTS[buffer.get()];
+        UUID key = new UUID(buffer.getLong(), buffer.getLong());
+        String saga = readString(buffer);
+        String step = readString(buffer);
+        return new SagaJournalRecord(key, saga, event, step.isEmpty() ? null : step);
+    }
+
+    private String readString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            // Torn or corrupt record, names longer than Short.MAX_VALUE are rejected on append
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private MappedByteBuffer openSegment(long index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(MappedSagaJournal::index))
+                    .toList();
+        }
+    }
+
+    private static long index(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,16 @@
+package com.micro.pattern.saga.journal;
+
+import java.util.Collection;
+import java.util.List;
+
+public class NoOpSagaJournal implements SagaJournal {
+    @Override
+    public void append(SagaJournalRecord record) {
+        // Journal disabled
+    }
+
+    @Override
+    public Collection<UnfinishedSaga> unfinished() {
+        return List.of();
+    }
+}
@@ -0,0 +1,16 @@
+package com.micro.pattern.saga.journal;
+
+import java.util.Collection;
+
+/**
+ * Durable record of saga progress. The orchestrator appends one record per saga and step transition, so a saga
+ * interrupted by a crash can be resumed or compensated on the next start.
+ */
+public interface SagaJournal {
+    void append(SagaJournalRecord record);
+
+    /**
+     * @return Sagas that were started and neither completed nor compensated when the journal was opened
+     */
+    Collection<UnfinishedSaga> unfinished();
+}
@@ -0,0 +1,24 @@
+package com.micro.pattern.saga.journal;
+
+import java.util.UUID;
+
+/**
+ * @param key   Saga key
+ * @param saga  Saga name
+ * @param event Transition
+ * @param step  Step class name, {@code null} for saga level events
+ */
+public record SagaJournalRecord(UUID key, String saga, Event event, String step) {
+    public enum Event {
+        SAGA_STARTED,
+        STEP_STARTED,
+        STEP_COMPLETED,
+        STEP_COMPENSATED,
+        SAGA_COMPLETED,
+        SAGA_COMPENSATED;
+
+        public boolean isTerminal() {
+            return this == SAGA_COMPLETED || this == SAGA_COMPENSATED;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.micro.pattern.saga.journal;
+
+import com.micro.pattern.saga.model.Saga;
+
+import java.util.UUID;
+
+/**
+ * Rebuilds a saga left unfinished by a crash. The journal only knows the saga key and its steps, the payload
+ * needed by handlers and compensators has to be restored by the owner of the saga.
+ *
+ * @param <T> Saga result type
+ */
+public interface SagaRecoverer<T> {
+    /**
+     * @return Name of the saga handled by this recoverer
+     */
+    String getSagaName();
+
+    /**
+     * @param key Saga key
+     * @return Saga with its steps and payload, {@code null} to leave it in the journal
+     */
+    Saga<T> rebuild(UUID key);
+
+    /**
+     * @return {@code true} to run the remaining steps, {@code false} to compensate the started ones
+     */
+    default boolean isResumable() {
+        return false;
+    }
+}
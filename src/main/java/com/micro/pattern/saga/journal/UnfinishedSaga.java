@@ -0,0 +1,33 @@
+package com.micro.pattern.saga.journal;
+
+import java.util.LinkedHashSet;
+import java.util.SequencedSet;
+import java.util.UUID;
+
+/**
+ * Saga found in the journal without a terminal record.
+ *
+ * @param key            Saga key
+ * @param name           Saga name
+ * @param startedSteps   Step class names in start order, excluding the ones already compensated
+ * @param completedSteps Step class names whose handler finished
+ */
+public record UnfinishedSaga(UUID key, String name, SequencedSet<String> startedSteps, SequencedSet<String> completedSteps) {
+    UnfinishedSaga(UUID key, String name) {
+        this(key, name, new LinkedHashSet<>(), new LinkedHashSet<>());
+    }
+
+    void apply(SagaJournalRecord record) {
+        switch (record.event()) {
+            case STEP_STARTED -> startedSteps.add(record.step());
+            case STEP_COMPLETED -> completedSteps.add(record.step());
+            case STEP_COMPENSATED -> {
+                startedSteps.remove(record.step());
+                completedSteps.remove(record.step());
+            }
+            default -> {
+                // Saga level events carry no step
+            }
+        }
+    }
+}
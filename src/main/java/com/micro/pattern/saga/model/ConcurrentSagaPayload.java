@@ -0,0 +1,45 @@
+package com.micro.pattern.saga.model;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe {@link SagaPayload} for sagas running steps in parallel. Reads are lock-free, writes and growth of
+ * the slot array are serialized.
+ *
+ * @param <T> Result type
+ */
+public class ConcurrentSagaPayload<T> extends SagaPayload<T> {
+    private volatile AtomicReferenceArray<Object> properties = new AtomicReferenceArray<>(0);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <M> M getProperty(SagaPayloadKey<M> sagaPayloadKey) {
+        AtomicReferenceArray<Object> values = properties;
+        int slot = sagaPayloadKey.slot();
+        Object value = slot < values.length() ? values.get(slot) : null;
+        return value == NULL ? null : (M) value;
+    }
+
+    @Override
+    public synchronized <M> void addProperty(SagaPayloadKey<M> sagaPayloadKey, M value) {
+        int slot = sagaPayloadKey.slot();
+        AtomicReferenceArray<Object> values = properties;
+        if (slot >= values.length()) {
+            AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(Math.max(slot + 1, values.length() * 2));
+            for (int i = 0; i < values.length(); i++) {
+                grown.lazySet(i, values.get(i));
+            }
+            // Publishing the grown array through the volatile field makes its copied slots visible to readers
+            values = grown;
+            properties = grown;
+        }
+        values.set(slot, value == null ? NULL : value);
+    }
+
+    @Override
+    public <M> boolean hasProperty(SagaPayloadKey<M> sagaPayloadKey) {
+        AtomicReferenceArray<Object> values = properties;
+        int slot = sagaPayloadKey.slot();
+        return slot < values.length() && values.get(slot) != null;
+    }
+}
@@ -3,6 +3,7 @@ package com.micro.pattern.saga.model;
 import lombok.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @AllArgsConstructor
@@ -13,13 +14,23 @@ public class Saga<T> {
     private String name;
     private UUID key;
     private List<Class<? extends SagaStep<T>>> requiredStep;
+    /**
+     * Optional dependencies of each step. When present, steps run as soon as the steps they depend on completed, so
+     * independent steps run concurrently. Dependencies must be declared before the step in {@link #requiredStep}.
+     * Steps without an entry have no dependencies. Parallel steps share the payload, see {@link SagaPayload#concurrent()}.
+     */
+    private Map<Class<? extends SagaStep<T>>, List<Class<? extends SagaStep<T>>>> stepDependency;
     private SagaPayload<T> payload;
 
     @Setter
     private boolean isErrorOccurred;
     private boolean isCompleteExecution;
+    /**
+     * Step being executed. Parallel steps of a graph saga set it from their own threads, it is then the step started
+     * last.
+     */
     @Setter
-    private Class<? extends SagaStep<T>> currentStep;
+    private volatile Class<? extends SagaStep<T>> currentStep;
 
     public void setIsCompleteExecution(boolean value) {
         if (value) {
@@ -31,4 +42,8 @@ public class Saga<T> {
     public void clearCurrentStep() {
         this.currentStep = null;
     }
+
+    public boolean hasStepDependency() {
+        return stepDependency != null && !stepDependency.isEmpty();
+    }
 }
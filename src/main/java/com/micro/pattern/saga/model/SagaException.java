@@ -4,4 +4,12 @@ public class SagaException extends RuntimeException {
     public SagaException(Throwable cause) {
         super(cause);
     }
+
+    public SagaException(String message) {
+        super(message);
+    }
+
+    public SagaException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -3,25 +3,77 @@ package com.micro.pattern.saga.model;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.Arrays;
 
+/**
+ * Saga properties stored in an array indexed by {@link SagaPayloadKey#slot()}, grown up to the highest slot the saga
+ * sets. Values are read with an unchecked cast: a key declared with the wrong type fails where the value is used. This
+ * payload is not thread-safe, sagas running steps in parallel should use {@link #concurrent()}.
+ *
+ * @param <T> Result type
+ */
 public class SagaPayload<T> {
-    private final Map<SagaPayloadKey<?>, Object> properties = new HashMap<>();
+    private static final Object[] EMPTY = {};
+    /**
+     * Stored for properties set to {@code null}, an empty slot is a property never set
+     */
+    static final Object NULL = new Object();
+
+    private Object[] properties = EMPTY;
 
     @Getter
     @Setter
-    private T result;
+    private volatile T result;
+
+    private volatile long deadline;
+    private volatile boolean deadlineSet;
+
+    public static <T> SagaPayload<T> concurrent() {
+        return new ConcurrentSagaPayload<>();
+    }
+
+    /**
+     * Starts the saga deadline, set by the orchestrator when the saga is submitted.
+     *
+     * @param timeout Time given to the saga from now
+     */
+    public void setDeadline(Duration timeout) {
+        deadline = System.nanoTime() + timeout.toNanos();
+        deadlineSet = true;
+    }
+
+    /**
+     * @return Time left before the saga deadline, to propagate to remote calls. {@code null} without deadline
+     */
+    public Duration getRemaining() {
+        return deadlineSet ? Duration.ofNanos(remainingNanos()) : null;
+    }
+
+    /**
+     * @return Nanoseconds left before the saga deadline, {@link Long#MAX_VALUE} without deadline
+     */
+    public long remainingNanos() {
+        return deadlineSet ? deadline - System.nanoTime() : Long.MAX_VALUE;
+    }
 
+    @SuppressWarnings("unchecked")
     public <M> M getProperty(SagaPayloadKey<M> sagaPayloadKey) {
-        return sagaPayloadKey.type().cast(properties.get(sagaPayloadKey));
+        int slot = sagaPayloadKey.slot();
+        Object value = slot < properties.length ? properties[slot] : null;
+        return value == NULL ? null : (M) value;
     }
 
     public <M> void addProperty(SagaPayloadKey<M> sagaPayloadKey, M value) {
-        properties.put(sagaPayloadKey, value);
+        int slot = sagaPayloadKey.slot();
+        if (slot >= properties.length) {
+            properties = Arrays.copyOf(properties, Math.max(slot + 1, properties.length * 2));
+        }
+        properties[slot] = value == null ? NULL : value;
     }
 
     public <M> boolean hasProperty(SagaPayloadKey<M> sagaPayloadKey) {
-        return properties.containsKey(sagaPayloadKey);
+        int slot = sagaPayloadKey.slot();
+        return slot < properties.length && properties[slot] != null;
     }
 }
@@ -1,17 +1,40 @@
 package com.micro.pattern.saga.model;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Typed payload key. Every id is interned into a dense slot when the key is declared, payloads store values by slot,
+ * so keys should be declared once as constants.
+ *
+ * @param <T> Value type
+ */
+public record SagaPayloadKey<T> (String id, Class<T> type, int slot) {
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+
+    public SagaPayloadKey {
+        Objects.requireNonNull(id);
+        if (!Objects.equals(SLOTS.get(id), slot)) {
+            throw new IllegalArgumentException("Slot " + slot + " is not the slot of key " + id);
+        }
+    }
+
+    public SagaPayloadKey(String id, Class<T> type) {
+        this(id, type, SLOTS.computeIfAbsent(Objects.requireNonNull(id), key -> NEXT_SLOT.getAndIncrement()));
+    }
 
-public record SagaPayloadKey<T> (String id, Class<T> type) {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof SagaPayloadKey<?> that)) return false;
-        return Objects.equals(id, that.id);
+        return slot == that.slot;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return slot;
     }
 }
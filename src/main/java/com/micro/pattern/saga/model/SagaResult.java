@@ -0,0 +1,15 @@
+package com.micro.pattern.saga.model;
+
+/**
+ * Outcome of one saga of a bulk execution.
+ *
+ * @param saga    Executed saga
+ * @param result  Saga result, {@code null} on failure
+ * @param failure Failure cause, {@code null} on success
+ * @param <T>     Result type
+ */
+public record SagaResult<T>(Saga<T> saga, T result, Throwable failure) {
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
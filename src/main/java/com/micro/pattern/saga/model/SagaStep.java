@@ -1,9 +1,18 @@
 package com.micro.pattern.saga.model;
 
+import java.time.Duration;
+
 public interface SagaStep<T> {
     String getName();
 
     SagaStepHandler<T> getHandler();
 
     SagaStepCompensator<T> getCompensator();
+
+    /**
+     * @return Maximum execution time of the handler, {@code null} to only be bounded by the saga deadline
+     */
+    default Duration getTimeout() {
+        return null;
+    }
 }
@@ -0,0 +1,303 @@
+package com.micro.sftp;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.sftp.client.SftpClient;
+import org.apache.sshd.sftp.common.SftpConstants;
+import org.apache.sshd.sftp.common.SftpException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.integration.sftp.session.SftpRemoteFileTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Transfers files of any size through pooled sessions in chunks of {@code sftp.transfer.chunk-size} bytes, so heap
+ * use does not depend on the file size. A failed chunk is retried on a new session up to
+ * {@code sftp.transfer.max-attempts} times, from the last byte written rather than from the start.
+ * <p>
+ * File transfers also resume across calls: the transfer continues from the size of the partial target once the
+ * CRC32C of its last chunk matches the source, and restarts from the start otherwise. With
+ * {@code sftp.transfer.verify}, the remote file is read again once the transfer is done, uploads and downloads alike,
+ * and the CRC32C of the whole file is compared with the one of the bytes written or read, resumed prefix included. A
+ * local download failing the check is emptied, so the next call does not resume from it.
+ */
+@ConditionalOnProperty(prefix = "sftp", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+@Component
+public class SftpStreamingTransfer {
+    private final SftpRemoteFileTemplate sftpRemoteFileTemplate;
+    @Value("${sftp.transfer.chunk-size:262144}")
+    private int chunkSize;
+    @Value("${sftp.transfer.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${sftp.transfer.retry-backoff-ms:1000}")
+    private long retryBackoff;
+    @Value("${sftp.transfer.verify:false}")
+    private boolean verify;
+
+    @FunctionalInterface
+    private interface SftpCallback<T> {
+        T doWithClient(SftpClient client) throws IOException;
+    }
+
+    /**
+     * Uploads the local file, resuming a previous partial upload of the same file.
+     */
+    public SftpTransferResult upload(Path local, String remote) {
+        try (FileChannel channel = FileChannel.open(local, StandardOpenOption.READ)) {
+            long size = channel.size();
+            byte[] chunk = new byte[chunkSize];
+            long[] resumedFrom = {-1};
+            withRetries(remote, client -> {
+                long offset = resumeOffset(client, remote, channel, size, chunk);
+                if (resumedFrom[0] < 0) {
+                    resumedFrom[0] = offset;
+                }
+                SftpClient.OpenMode[] modes = offset == 0
+                        ? new SftpClient.OpenMode[]{SftpClient.OpenMode.Write, SftpClient.OpenMode.Create, SftpClient.OpenMode.Truncate}
+                        : new SftpClient.OpenMode[]{SftpClient.OpenMode.Write};
+                try (SftpClient.CloseableHandle handle = client.open(remote, modes)) {
+                    while (offset < size) {
+                        int length = read(channel, offset, chunk);
+                        client.write(handle, offset, chunk, 0, length);
+                        offset += length;
+                    }
+                }
+                return null;
+            });
+            long checksum = checksum(channel, chunk);
+            verify(remote, size, checksum, chunk);
+            log.info("SFTP upload: {} -> {} -- {} bytes -- resumed from {}", local, remote, size, resumedFrom[0]);
+            return new SftpTransferResult(size, resumedFrom[0], checksum);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Uploads the stream, replacing the remote file. The stream is read once, a failed chunk is written again from
+     * memory.
+     */
+    public SftpTransferResult upload(InputStream in, String remote) {
+        byte[] chunk = new byte[chunkSize];
+        CRC32C crc = new CRC32C();
+        // Bytes written so far, and bytes of the chunk read but not written yet
+        long[] offset = {0};
+        int[] pending = {0};
+        withRetries(remote, client -> {
+            SftpClient.OpenMode[] modes = offset[0] == 0
+                    ? new SftpClient.OpenMode[]{SftpClient.OpenMode.Write, SftpClient.OpenMode.Create, SftpClient.OpenMode.Truncate}
+                    : new SftpClient.OpenMode[]{SftpClient.OpenMode.Write};
+            try (SftpClient.CloseableHandle handle = client.open(remote, modes)) {
+                while (true) {
+                    if (pending[0] == 0) {
+                        pending[0] = in.readNBytes(chunk, 0, chunk.length);
+                        if (pending[0] == 0) {
+                            return null;
+                        }
+                        crc.update(chunk, 0, pending[0]);
+                    }
+                    client.write(handle, offset[0], chunk, 0, pending[0]);
+                    offset[0] += pending[0];
+                    pending[0] = 0;
+                }
+            }
+        });
+        verify(remote, offset[0], crc.getValue(), chunk);
+        log.info("SFTP upload: stream -> {} -- {} bytes", remote, offset[0]);
+        return new SftpTransferResult(offset[0], 0, crc.getValue());
+    }
+
+    /**
+     * Downloads the remote file, resuming a previous partial download to the same local file.
+     */
+    public SftpTransferResult download(String remote, Path local) {
+        try (FileChannel channel = FileChannel.open(local, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            byte[] chunk = new byte[chunkSize];
+            byte[] remoteChunk = new byte[chunkSize];
+            long[] resumedFrom = {-1};
+            long size = withRetries(remote, client -> {
+                long remoteSize = client.stat(remote).getSize();
+                long offset = Math.min(channel.size(), remoteSize);
+                if (offset > 0) {
+                    int length = (int) Math.min(chunk.length, offset);
+                    try (SftpClient.CloseableHandle handle = client.open(remote)) {
+                        if (crc(chunk, read(channel, offset - length, chunk, length))
+                                != crc(remoteChunk, readFully(client, handle, offset - length, remoteChunk, length))) {
+                            offset = 0;
+                        }
+                    }
+                }
+                if (resumedFrom[0] < 0) {
+                    resumedFrom[0] = offset;
+                }
+                try (SftpClient.CloseableHandle handle = client.open(remote)) {
+                    while (offset < remoteSize) {
+                        int length = readFully(client, handle, offset, chunk, (int) Math.min(chunk.length, remoteSize - offset));
+                        channel.write(ByteBuffer.wrap(chunk, 0, length), offset);
+                        offset += length;
+                    }
+                }
+                channel.truncate(remoteSize);
+                return remoteSize;
+            });
+            channel.force(false);
+            long checksum = checksum(channel, chunk);
+            try {
+                verify(remote, size, checksum, chunk);
+            } catch (IllegalStateException e) {
+                channel.truncate(0);
+                throw e;
+            }
+            log.info("SFTP download: {} -> {} -- {} bytes -- resumed from {}", remote, local, size, resumedFrom[0]);
+            return new SftpTransferResult(size, resumedFrom[0], checksum);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Streams the remote file to the output stream. A failed chunk is read again from where the stream stopped.
+     */
+    public SftpTransferResult download(String remote, OutputStream out) {
+        byte[] chunk = new byte[chunkSize];
+        CRC32C crc = new CRC32C();
+        long[] offset = {0};
+        withRetries(remote, client -> {
+            long remoteSize = client.stat(remote).getSize();
+            try (SftpClient.CloseableHandle handle = client.open(remote)) {
+                while (offset[0] < remoteSize) {
+                    int length = readFully(client, handle, offset[0], chunk, (int) Math.min(chunk.length, remoteSize - offset[0]));
+                    out.write(chunk, 0, length);
+                    crc.update(chunk, 0, length);
+                    offset[0] += length;
+                }
+            }
+            return null;
+        });
+        verify(remote, offset[0], crc.getValue(), chunk);
+        log.info("SFTP download: {} -> stream -- {} bytes", remote, offset[0]);
+        return new SftpTransferResult(offset[0], 0, crc.getValue());
+    }
+
+    private <T> T withRetries(String remote, SftpCallback<T> callback) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return sftpRemoteFileTemplate.execute(session -> callback.doWithClient((SftpClient) session.getClientInstance()));
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("SFTP transfer retry {}/{}: {}", attempt, maxAttempts, remote, e);
+                try {
+                    Thread.sleep(retryBackoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Size of the remote file when its last chunk matches the local file, otherwise {@code 0}
+     */
+    private long resumeOffset(SftpClient client, String remote, FileChannel channel, long size, byte[] chunk) throws IOException {
+        long remoteSize;
+        try {
+            remoteSize = client.stat(remote).getSize();
+        } catch (SftpException e) {
+            if (e.getStatus() == SftpConstants.SSH_FX_NO_SUCH_FILE) {
+                return 0;
+            }
+            throw e;
+        }
+        if (remoteSize == 0 || remoteSize > size) {
+            return 0;
+        }
+        int length = (int) Math.min(chunk.length, remoteSize);
+        long localCrc = crc(chunk, read(channel, remoteSize - length, chunk, length));
+        try (SftpClient.CloseableHandle handle = client.open(remote)) {
+            return localCrc == crc(chunk, readFully(client, handle, remoteSize - length, chunk, length)) ? remoteSize : 0;
+        }
+    }
+
+    /**
+     * Compares the CRC32C of the first {@code size} bytes of the remote file with the checksum of the transferred bytes
+     */
+    private void verify(String remote, long size, long checksum, byte[] chunk) {
+        if (!verify) {
+            return;
+        }
+        CRC32C crc = new CRC32C();
+        withRetries(remote, client -> {
+            crc.reset();
+            try (SftpClient.CloseableHandle handle = client.open(remote)) {
+                for (long offset = 0; offset < size; ) {
+                    int length = readFully(client, handle, offset, chunk, (int) Math.min(chunk.length, size - offset));
+                    crc.update(chunk, 0, length);
+                    offset += length;
+                }
+            }
+            return null;
+        });
+        if (crc.getValue() != checksum) {
+            throw new IllegalStateException("SFTP checksum mismatch: " + remote);
+        }
+    }
+
+    private static long checksum(FileChannel channel, byte[] chunk) throws IOException {
+        CRC32C crc = new CRC32C();
+        long size = channel.size();
+        for (long offset = 0; offset < size; ) {
+            int length = read(channel, offset, chunk);
+            crc.update(chunk, 0, length);
+            offset += length;
+        }
+        return crc.getValue();
+    }
+
+    private static long crc(byte[] chunk, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(chunk, 0, length);
+        return crc.getValue();
+    }
+
+    private static int read(FileChannel channel, long offset, byte[] chunk) throws IOException {
+        return read(channel, offset, chunk, (int) Math.min(chunk.length, channel.size() - offset));
+    }
+
+    private static int read(FileChannel channel, long offset, byte[] chunk, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at " + (offset + buffer.position()));
+            }
+        }
+        return length;
+    }
+
+    private static int readFully(SftpClient client, SftpClient.Handle handle, long offset, byte[] chunk, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = client.read(handle, offset + read, chunk, read, length - read);
+            if (n < 0) {
+                throw new IOException("Unexpected end of remote file at " + (offset + read));
+            }
+            read += n;
+        }
+        return read;
+    }
+}
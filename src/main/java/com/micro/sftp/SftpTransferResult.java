@@ -0,0 +1,9 @@
+package com.micro.sftp;
+
+/**
+ * @param bytes       Size of the transferred file
+ * @param resumedFrom Offset the transfer resumed from, {@code 0} when transferred from the start
+ * @param checksum    CRC32C of the whole file
+ */
+public record SftpTransferResult(long bytes, long resumedFrom, long checksum) {
+}
@@ -0,0 +1,108 @@
+package com.micro.sftp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.RemoteFileUtils;
+import org.springframework.integration.file.support.FileExistsMode;
+import org.springframework.integration.sftp.session.SftpRemoteFileTemplate;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads batches of files in parallel, each on its own pooled session. At most {@code sftp.upload.parallelism} files
+ * are written at once, half of {@code sftp.pool.size} by default, so the other users of the pool keep sessions of
+ * their own. An upload still waits up to {@code sftp.pool.wait-timeout-ms} and fails when they hold the rest of the
+ * pool. Files are written under a temporary name and renamed once complete, replacing existing files.
+ */
+@ConditionalOnProperty(prefix = "sftp", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+@Component
+public class SftpUploadGateway {
+    private final SftpRemoteFileTemplate sftpRemoteFileTemplate;
+    @Value("${sftp.pool.size:10}")
+    private int poolSize;
+    @Value("${sftp.upload.parallelism:0}")
+    private int parallelism;
+
+    private ExecutorService executorService;
+    private Semaphore sessions;
+
+    @PostConstruct
+    void init() {
+        executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sftp-upload-", 0).factory());
+        sessions = new Semaphore(parallelism > 0 ? Math.min(parallelism, poolSize) : Math.max(1, poolSize / 2));
+    }
+
+    @PreDestroy
+    void destroy() {
+        executorService.close();
+    }
+
+    /**
+     * Uploads the files to the remote directory and waits for all of them.
+     *
+     * @return Failure of each file that could not be uploaded, empty when all were
+     * @throws Error First {@link Error} thrown by an upload, once every upload ended
+     */
+    public Map<Path, Exception> uploadAll(Collection<Path> files, String remoteDirectory) {
+        // Created once up front, parallel uploads creating the same directory would fail
+        sftpRemoteFileTemplate.execute(session -> {
+            RemoteFileUtils.makeDirectories(remoteDirectory, session, "/", LogFactory.getLog(SftpUploadGateway.class));
+            return null;
+        });
+        Map<Path, CompletableFuture<Void>> uploads = new LinkedHashMap<>();
+        for (Path file : files) {
+            uploads.put(file, CompletableFuture.runAsync(() -> upload(file, remoteDirectory), executorService));
+        }
+        Map<Path, Exception> failures = new LinkedHashMap<>();
+        Error error = null;
+        for (Map.Entry<Path, CompletableFuture<Void>> upload : uploads.entrySet()) {
+            try {
+                upload.getValue().join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.error("SFTP upload Error: {} -- {}", upload.getKey(), remoteDirectory, cause);
+                if (cause instanceof Exception exception) {
+                    failures.put(upload.getKey(), exception);
+                } else if (error == null) {
+                    error = (Error) cause;
+                }
+            }
+        }
+        log.info("SFTP upload: {} files -- {} failed -- {}", files.size(), failures.size(), remoteDirectory);
+        if (error != null) {
+            throw error;
+        }
+        return failures;
+    }
+
+    /**
+     * Uploads one file to the remote directory on the calling thread.
+     */
+    public void upload(Path file, String remoteDirectory) {
+        sessions.acquireUninterruptibly();
+        try {
+            sftpRemoteFileTemplate.send(MessageBuilder.withPayload(file.toFile())
+                    .setHeader(FileHeaders.REMOTE_DIRECTORY, remoteDirectory)
+                    .build(), FileExistsMode.REPLACE);
+        } finally {
+            sessions.release();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.micro.util;
 
 import com.micro.model.DefaultAPIError;
+import com.micro.pattern.idempotency.DuplicateTidException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Path;
@@ -87,6 +88,10 @@ public class ExceptionAdviserHandler {
         return createResponse(errors.toString(), HttpStatus.BAD_REQUEST);
     }
 
+    public static ResponseEntity<DefaultAPIError> duplicateTidException(DuplicateTidException ex) {
+        return createResponse(ex.getTid(), null, ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
     public static ResponseEntity<DefaultAPIError> createResponse(String message, HttpStatus status) {
         return createResponse(null, null, message, status);
     }
@@ -0,0 +1,130 @@
+package com.micro.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.classify.BinaryExceptionClassifier;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class KeyOrderedMessageListenerTest {
+    private static final String TOPIC = "topic";
+
+    private final Queue<Long> acknowledged = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> recovered = new ConcurrentLinkedQueue<>();
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private KeyOrderedMessageListener<String, String> listener;
+
+    @AfterEach
+    void tearDown() {
+        listener.close();
+    }
+
+    @Test
+    void retryableFailureIsRetriedThenRecovered() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        listener = listener(data -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("failed");
+        }, (data, e) -> recovered.add(data.offset()));
+
+        CountDownLatch done = new CountDownLatch(1);
+        listener.onMessage(record("key", 0), acknowledgment(0, done));
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(calls).hasValue(3);
+        assertThat(recovered).containsExactly(0L);
+    }
+
+    @Test
+    void notRetryableFailureIsRecoveredAtOnce() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        listener = listener(data -> {
+            calls.incrementAndGet();
+            throw new NullPointerException("failed");
+        }, (data, e) -> recovered.add(data.offset()));
+
+        CountDownLatch done = new CountDownLatch(1);
+        listener.onMessage(record("key", 0), acknowledgment(0, done));
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(calls).hasValue(1);
+        assertThat(recovered).containsExactly(0L);
+        verify(container, never()).stop(any(Runnable.class));
+    }
+
+    @Test
+    void failedRecoveryStopsKeyChainAndContainer() throws InterruptedException {
+        Queue<Long> handled = new ConcurrentLinkedQueue<>();
+        listener = listener(data -> {
+            if (data.offset() == 0) {
+                throw new NullPointerException("failed");
+            }
+            handled.add(data.offset());
+        }, (data, e) -> {
+            throw new IllegalStateException("recovery failed");
+        });
+
+        CountDownLatch done = new CountDownLatch(1);
+        listener.onMessage(record("key", 0), acknowledgment(0, null));
+        listener.onMessage(record("key", 1), acknowledgment(1, null));
+        listener.onMessage(record("other", 2), acknowledgment(2, done));
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        assertThat(handled).containsExactly(2L);
+        assertThat(acknowledged).containsExactly(2L);
+        verify(container, timeout(1000)).stop(any(Runnable.class));
+
+        listener.onMessage(record("key", 3), acknowledgment(3, null));
+        Thread.sleep(100);
+        assertThat(handled).containsExactly(2L);
+
+        listener.onPartitionsRevoked(List.of(new TopicPartition(TOPIC, 0)));
+        CountDownLatch redelivered = new CountDownLatch(1);
+        listener.onMessage(record("key", 1), acknowledgment(1, redelivered));
+
+        assertThat(redelivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(handled).containsExactly(2L, 1L);
+    }
+
+    private KeyOrderedMessageListener<String, String> listener(Consumer<ConsumerRecord<String, String>> handler,
+                                                               ConsumerRecordRecoverer recoverer) {
+        BinaryExceptionClassifier retryable = new BinaryExceptionClassifier(Map.of(NullPointerException.class, false), true);
+        return new KeyOrderedMessageListener<>(handler, recoverer, new FixedBackOff(10, 2), retryable,
+                Executors.newFixedThreadPool(2), container, 8);
+    }
+
+    private ConsumerRecord<String, String> record(String key, long offset) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, key, "value-" + offset);
+    }
+
+    private Acknowledgment acknowledgment(long offset, CountDownLatch done) {
+        return () -> {
+            acknowledged.add(offset);
+            if (done != null) {
+                done.countDown();
+            }
+        };
+    }
+}
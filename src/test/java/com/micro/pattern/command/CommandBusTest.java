@@ -0,0 +1,133 @@
+package com.micro.pattern.command;
+
+import com.micro.configuration.CQRSConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.integration.config.EnableIntegration;
+import org.springframework.messaging.MessageHandlingException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class CommandBusTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withPropertyValues("pattern.cqrs.enabled=true")
+            .withUserConfiguration(CommandBusConfiguration.class);
+
+    /**
+     * Direct dispatch, channel and batch paths report a handler failure the same way.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void handlerFailuresAreWrappedOnEveryPath(boolean checked) {
+        contextRunner.run(context -> {
+            CommandBus commandBus = context.getBean(CommandBus.class);
+            FailingCommand command = new FailingCommand(checked);
+
+            Throwable direct = catchThrowable(() -> commandBus.dispatchCommand(command));
+            Throwable channel = catchThrowable(() -> commandBus.sendCommandThroughChannel(command));
+            Throwable batch = catchThrowable(() -> commandBus.sendCommands(List.of(command)));
+
+            for (Throwable failure : List.of(direct, channel, batch)) {
+                assertThat(failure).isInstanceOf(MessageHandlingException.class)
+                        .hasRootCauseInstanceOf(IllegalStateException.class)
+                        .hasRootCauseMessage(checked ? "checked" : "runtime");
+            }
+            assertThat(direct.getCause()).hasSameClassAs(channel.getCause());
+        });
+    }
+
+    /**
+     * Commands waiting for their type limit do not hold executor threads other command types need.
+     */
+    @Test
+    void sendCommandAsyncQueuesCommandsOverLimit() {
+        contextRunner.withPropertyValues("pattern.cqrs.executor.virtual-threads=false", "pattern.cqrs.executor.pool-size=2",
+                "pattern.cqrs.concurrency={'SlowCommand': 1}").run(context -> {
+            CommandBus commandBus = context.getBean(CommandBus.class);
+            SlowHandler.RUNNING.set(0);
+            SlowHandler.MAX_RUNNING.set(0);
+
+            List<CompletableFuture<String>> slow = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                slow.add(commandBus.sendCommandAsync(new SlowCommand()));
+            }
+            CompletableFuture<String> fast = commandBus.sendCommandAsync(new FastCommand());
+
+            assertThat(fast.get(150, TimeUnit.MILLISECONDS)).isEqualTo("fast");
+            for (CompletableFuture<String> result : slow) {
+                assertThat(result.get(2, TimeUnit.SECONDS)).isEqualTo("slow");
+            }
+            assertThat(SlowHandler.MAX_RUNNING).hasValue(1);
+        });
+    }
+
+    @Configuration
+    @EnableIntegration
+    @Import({CQRSConfiguration.class, CommandBus.class, CommandBusHandler.class, CommandProvider.class, QueryCache.class,
+            FailingHandler.class, SlowHandler.class, FastHandler.class})
+    static class CommandBusConfiguration {
+    }
+
+    static class SlowCommand extends Command<String> {
+    }
+
+    static class FastCommand extends Command<String> {
+    }
+
+    @CommandEvent(command = SlowCommand.class)
+    static class SlowHandler implements CommandHandler<String, SlowCommand> {
+        static final AtomicInteger RUNNING = new AtomicInteger();
+        static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+
+        @Override
+        public String handle(SlowCommand command) {
+            MAX_RUNNING.accumulateAndGet(RUNNING.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            RUNNING.decrementAndGet();
+            return "slow";
+        }
+    }
+
+    @CommandEvent(command = FastCommand.class)
+    static class FastHandler implements CommandHandler<String, FastCommand> {
+        @Override
+        public String handle(FastCommand command) {
+            return "fast";
+        }
+    }
+
+    static class FailingCommand extends Command<String> {
+        private final boolean checked;
+
+        FailingCommand(boolean checked) {
+            this.checked = checked;
+        }
+    }
+
+    @CommandEvent(command = FailingCommand.class)
+    static class FailingHandler implements CommandHandler<String, FailingCommand> {
+        @Override
+        public String handle(FailingCommand command) throws ExecutionException {
+            if (command.checked) {
+                throw new ExecutionException(new IllegalStateException("checked"));
+            }
+            throw new IllegalStateException("runtime");
+        }
+    }
+}
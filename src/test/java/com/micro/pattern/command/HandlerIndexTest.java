@@ -0,0 +1,84 @@
+package com.micro.pattern.command;
+
+import com.micro.pattern.command.processor.CommandIndexProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationContext;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HandlerIndexTest {
+    @TempDir
+    Path classpath;
+
+    @Test
+    void indexIsMergedWithAnnotatedBeans() throws IOException {
+        ClassLoader classLoader = withIndex(IndexedCommand.class.getName() + "=" + IndexedHandler.class.getName());
+
+        new ApplicationContextRunner()
+                .withClassLoader(classLoader)
+                .withBean(IndexedHandler.class)
+                .withBean(ScannedHandler.class)
+                .run(context -> {
+                    Map<Class<?>, Object> handlers = load(context);
+
+                    assertThat(handlers).containsOnlyKeys(IndexedCommand.class, ScannedCommand.class);
+                    assertThat(handlers.get(IndexedCommand.class)).isSameAs(context.getBean(IndexedHandler.class));
+                    assertThat(handlers.get(ScannedCommand.class)).isSameAs(context.getBean(ScannedHandler.class));
+                });
+    }
+
+    @Test
+    void indexedHandlerMustBeABean() throws IOException {
+        ClassLoader classLoader = withIndex(IndexedCommand.class.getName() + "=" + IndexedHandler.class.getName());
+
+        new ApplicationContextRunner()
+                .withClassLoader(classLoader)
+                .withBean(ScannedHandler.class)
+                .run(context -> assertThatThrownBy(() -> load(context))
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessageContaining(IndexedHandler.class.getName()));
+    }
+
+    private Map<Class<?>, Object> load(ApplicationContext context) {
+        return HandlerIndex.load(context, CommandIndexProcessor.COMMAND_INDEX, CommandEvent.class, CommandEvent::command);
+    }
+
+    private ClassLoader withIndex(String entries) throws IOException {
+        Path index = classpath.resolve(CommandIndexProcessor.COMMAND_INDEX);
+        Files.createDirectories(index.getParent());
+        Files.writeString(index, entries);
+        return new URLClassLoader(new URL[]{classpath.toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    static class IndexedCommand extends Command<String> {
+    }
+
+    static class ScannedCommand extends Command<String> {
+    }
+
+    @CommandEvent(command = IndexedCommand.class)
+    static class IndexedHandler implements CommandHandler<String, IndexedCommand> {
+        @Override
+        public String handle(IndexedCommand command) {
+            return "indexed";
+        }
+    }
+
+    @CommandEvent(command = ScannedCommand.class)
+    static class ScannedHandler implements CommandHandler<String, ScannedCommand> {
+        @Override
+        public String handle(ScannedCommand command) {
+            return "scanned";
+        }
+    }
+}
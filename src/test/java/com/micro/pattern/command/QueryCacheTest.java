@@ -0,0 +1,180 @@
+package com.micro.pattern.command;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryCacheTest {
+    private final QueryCache queryCache = new QueryCache();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final QueryHandler<?, Query<?>> handler = handler(query -> {
+        calls.incrementAndGet();
+        return "result-" + query.id();
+    });
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(queryCache, "maxSize", 3);
+        ReflectionTestUtils.setField(queryCache, "ttlMs", 100L);
+    }
+
+    @Test
+    void getCachesResult() throws ExecutionException {
+        assertThat(queryCache.get(new TestQuery(1), handler)).isEqualTo("result-1");
+        assertThat(queryCache.get(new TestQuery(1), handler)).isEqualTo("result-1");
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void expiredEntryIsComputedAgain() throws ExecutionException, InterruptedException {
+        queryCache.get(new TestQuery(1), handler);
+        Thread.sleep(150);
+
+        queryCache.get(new TestQuery(1), handler);
+
+        assertThat(calls).hasValue(2);
+    }
+
+    /**
+     * An entry computed again after expiring is the newest one, not the one evicted first.
+     */
+    @Test
+    void evictionFollowsInsertionOrderAfterExpiry() throws ExecutionException, InterruptedException {
+        queryCache.get(new TestQuery(1), handler);
+        Thread.sleep(150);
+        queryCache.get(new TestQuery(2), handler);
+        queryCache.get(new TestQuery(1), handler);
+        queryCache.get(new TestQuery(3), handler);
+        queryCache.get(new TestQuery(4), handler);
+        calls.set(0);
+
+        queryCache.get(new TestQuery(1), handler);
+        queryCache.get(new TestQuery(2), handler);
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void invalidateEvictsResults() throws ExecutionException {
+        queryCache.get(new TestQuery(1), handler);
+
+        queryCache.invalidate(TestQuery.class);
+        queryCache.get(new TestQuery(1), handler);
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void resultComputedDuringInvalidationIsNotCached() throws ExecutionException {
+        QueryHandler<?, Query<?>> invalidating = handler(query -> {
+            calls.incrementAndGet();
+            queryCache.invalidate(TestQuery.class);
+            return "stale";
+        });
+        queryCache.get(new TestQuery(2), handler);
+
+        assertThat(queryCache.get(new TestQuery(1), invalidating)).isEqualTo("stale");
+        queryCache.get(new TestQuery(1), handler);
+
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void invalidateIgnoresUncachedType() {
+        queryCache.invalidate(TestQuery.class);
+
+        assertThat(regions()).isEmpty();
+    }
+
+    /**
+     * A command failing after earlier commands of the batch were written still evicts the cached results.
+     */
+    @Test
+    void failedCommandBatchInvalidatesResults() {
+        new ApplicationContextRunner()
+                .withPropertyValues("pattern.cqrs.enabled=true")
+                .withBean(QueryCache.class)
+                .withBean(CommandProvider.class)
+                .withBean(CommandBusHandler.class)
+                .withBean(WriteHandler.class)
+                .run(context -> {
+                    QueryCache cache = context.getBean(QueryCache.class);
+                    QueryHandler<?, Query<?>> reader = handler(query -> "value-" + WriteHandler.VALUE.get());
+                    WriteHandler.VALUE.set(0);
+                    assertThat(cache.get(new TestQuery(1), reader)).isEqualTo("value-0");
+
+                    assertThatThrownBy(() -> context.getBean(CommandBusHandler.class).executeCommands(WriteCommand.class,
+                            List.of(new WriteCommand(1), new WriteCommand(-1))))
+                            .isInstanceOf(IllegalStateException.class);
+
+                    assertThat(cache.get(new TestQuery(1), reader)).isEqualTo("value-1");
+                });
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static QueryHandler<?, Query<?>> handler(QueryHandler<String, TestQuery> handler) {
+        return (QueryHandler) handler;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Class<?>, ?> regions() {
+        return (Map<Class<?>, ?>) ReflectionTestUtils.getField(queryCache, "regions");
+    }
+
+    static final class WriteCommand extends Command<Integer> {
+        private final int value;
+
+        WriteCommand(int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Writes the value of the command, and fails on negative values
+     */
+    @CommandEvent(command = WriteCommand.class, invalidates = TestQuery.class)
+    static class WriteHandler implements CommandHandler<Integer, WriteCommand> {
+        static final AtomicInteger VALUE = new AtomicInteger();
+
+        @Override
+        public Integer handle(WriteCommand command) {
+            if (command.value < 0) {
+                throw new IllegalStateException("Write failed");
+            }
+            VALUE.set(command.value);
+            return command.value;
+        }
+    }
+
+    static final class TestQuery extends Query<String> {
+        private final int id;
+
+        TestQuery(int id) {
+            this.id = id;
+        }
+
+        int id() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestQuery that && id == that.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+}
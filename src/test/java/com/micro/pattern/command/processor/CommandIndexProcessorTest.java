@@ -0,0 +1,81 @@
+package com.micro.pattern.command.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandIndexProcessorTest {
+    @TempDir
+    Path output;
+
+    @Test
+    void subclassOfHandlerIsNotADuplicate() throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(
+                source("sample.CreateCommand", "public class CreateCommand extends Command<String> {}"),
+                source("sample.CreateHandler", """
+                        @CommandEvent(command = CreateCommand.class)
+                        public class CreateHandler implements CommandHandler<String, CreateCommand> {
+                            public String handle(CreateCommand command) { return "created"; }
+                        }"""),
+                source("sample.AuditedCreateHandler", "public class AuditedCreateHandler extends CreateHandler {}"));
+
+        assertThat(diagnostics.getDiagnostics()).filteredOn(d -> d.getKind() == Diagnostic.Kind.ERROR).isEmpty();
+        assertThat(Files.readAllLines(output.resolve(CommandIndexProcessor.COMMAND_INDEX)))
+                .containsExactly("sample.CreateCommand=sample.CreateHandler");
+    }
+
+    @Test
+    void secondHandlerFailsCompilation() {
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(
+                source("sample.CreateCommand", "public class CreateCommand extends Command<String> {}"),
+                source("sample.CreateHandler", """
+                        @CommandEvent(command = CreateCommand.class)
+                        public class CreateHandler implements CommandHandler<String, CreateCommand> {
+                            public String handle(CreateCommand command) { return "created"; }
+                        }"""),
+                source("sample.OtherCreateHandler", """
+                        @CommandEvent(command = CreateCommand.class)
+                        public class OtherCreateHandler implements CommandHandler<String, CreateCommand> {
+                            public String handle(CreateCommand command) { return "other"; }
+                        }"""));
+
+        assertThat(diagnostics.getDiagnostics()).anySatisfy(d ->
+                assertThat(d.getMessage(null)).contains("is handled by"));
+    }
+
+    private DiagnosticCollector<JavaFileObject> compile(JavaFileObject... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+                List.of("-d", output.toString(), "-classpath", System.getProperty("java.class.path"), "-proc:full"),
+                null, List.of(sources));
+        task.setProcessors(List.of(new CommandIndexProcessor()));
+        task.call();
+        return diagnostics;
+    }
+
+    private static JavaFileObject source(String className, String body) {
+        String code = "package " + className.substring(0, className.lastIndexOf('.')) + ";\n"
+                + "import com.micro.pattern.command.*;\n" + body;
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.micro.pattern.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileIdempotencyStoreTest {
+    private static final int RECORD_SIZE = 3 * Long.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void completedTidIsRestoredWithoutResult() throws IOException {
+        UUID tid = UUID.randomUUID();
+        try (FileIdempotencyStore store = open(100)) {
+            assertThat(store.tryAcquire(tid)).isNull();
+            store.complete(tid, "result");
+            assertThat(store.tryAcquire(tid)).isEqualTo(new IdempotencyRecord(true, "result"));
+        }
+
+        try (FileIdempotencyStore store = open(100)) {
+            assertThat(store.tryAcquire(tid)).isEqualTo(new IdempotencyRecord(true, null, true));
+        }
+    }
+
+    @Test
+    void releasedTidIsNotRestored() throws IOException {
+        UUID tid = UUID.randomUUID();
+        try (FileIdempotencyStore store = open(100)) {
+            assertThat(store.tryAcquire(tid)).isNull();
+            store.release(tid);
+        }
+
+        try (FileIdempotencyStore store = open(100)) {
+            assertThat(store.tryAcquire(tid)).isNull();
+        }
+    }
+
+    @Test
+    void fileIsCompactedWhileRunning() throws IOException, InterruptedException {
+        try (FileIdempotencyStore store = open(4)) {
+            for (int i = 0; i < 20; i++) {
+                store.complete(UUID.randomUUID(), i);
+            }
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (Files.size(file()) > 4 * RECORD_SIZE && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(Files.size(file())).isLessThanOrEqualTo(4 * RECORD_SIZE);
+        }
+    }
+
+    private FileIdempotencyStore open(int maxEntries) {
+        return new FileIdempotencyStore(file(), 1, maxEntries, Duration.ofHours(1), Duration.ofMillis(10));
+    }
+
+    private Path file() {
+        return directory.resolve("tid.log");
+    }
+}
@@ -0,0 +1,439 @@
+package com.micro.pattern.saga;
+
+import com.micro.pattern.saga.journal.NoOpSagaJournal;
+import com.micro.pattern.saga.journal.SagaJournal;
+import com.micro.pattern.saga.model.Saga;
+import com.micro.pattern.saga.model.SagaException;
+import com.micro.pattern.saga.model.SagaPayload;
+import com.micro.pattern.saga.model.SagaResult;
+import com.micro.pattern.saga.model.SagaStep;
+import com.micro.pattern.saga.model.SagaStepCompensator;
+import com.micro.pattern.saga.model.SagaStepHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SagaOrchestratorTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withPropertyValues("pattern.saga.enabled=true", "pattern.saga.executor.pool-size=2")
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withBean(SagaJournal.class, NoOpSagaJournal::new)
+            .withBean(SagaMetrics.class)
+            .withBean(SagaPlanRegistry.class)
+            .withBean(SagaOrchestrator.class)
+            .withBean(FirstStep.class)
+            .withBean(SecondStep.class)
+            .withBean(LastStep.class)
+            .withBean(CompensatedStep.class)
+            .withBean(SlowStep.class)
+            .withBean(TimedStep.class)
+            .withBean(SlowTimedStep.class)
+            .withBean(RootStep.class)
+            .withBean(LeftStep.class)
+            .withBean(RightStep.class)
+            .withBean(FailingStep.class);
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void orchestrateSequence(boolean virtualThreads) {
+        contextRunner.withPropertyValues("pattern.saga.executor.virtual-threads=" + virtualThreads).run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+            Saga<String> saga = Saga.<String>builder()
+                    .name("sequence")
+                    .requiredStep(List.of(FirstStep.class, SecondStep.class, LastStep.class))
+                    .payload(new SagaPayload<>())
+                    .build();
+
+            assertThat(orchestrator.orchestrate(saga, Duration.ofSeconds(3))).isEqualTo("done");
+            assertThat(saga.isCompleteExecution()).isTrue();
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void orchestrateAsync(boolean virtualThreads) {
+        contextRunner.withPropertyValues("pattern.saga.executor.virtual-threads=" + virtualThreads).run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+
+            assertThat(orchestrator.orchestrateAsync(graphSaga(), Duration.ofSeconds(3)).get(3, TimeUnit.SECONDS))
+                    .isEqualTo("done");
+        });
+    }
+
+    /**
+     * Every saga of a full pool waits for its parallel steps, which must not need a pool thread.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void orchestrateGraphOnFullPool(boolean virtualThreads) {
+        contextRunner.withPropertyValues("pattern.saga.executor.virtual-threads=" + virtualThreads).run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+
+            List<SagaResult<String>> results = orchestrator.orchestrateAll(
+                    List.of(graphSaga(), graphSaga()), 2, Duration.ofSeconds(3));
+
+            assertThat(results).allSatisfy(result -> {
+                assertThat(result.failure()).isNull();
+                assertThat(result.result()).isEqualTo("done");
+            });
+        });
+    }
+
+    /**
+     * Both branches wait for each other, so the saga only completes when they run at the same time.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void independentGraphStepsOverlap(boolean virtualThreads) {
+        contextRunner.withPropertyValues("pattern.saga.executor.virtual-threads=" + virtualThreads).run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+            BranchStep.reset();
+            Saga<String> saga = Saga.<String>builder()
+                    .name("overlap")
+                    .requiredStep(List.of(RootStep.class, LeftStep.class, RightStep.class, LastStep.class))
+                    .stepDependency(Map.of(
+                            LeftStep.class, List.of(RootStep.class),
+                            RightStep.class, List.of(RootStep.class),
+                            LastStep.class, List.of(LeftStep.class, RightStep.class)))
+                    .payload(SagaPayload.concurrent())
+                    .build();
+
+            assertThat(orchestrator.orchestrate(saga, Duration.ofSeconds(3))).isEqualTo("done");
+            assertThat(BranchStep.COMPENSATED).isEmpty();
+        });
+    }
+
+    /**
+     * The failing step is compensated first, then the steps it depends on, each after the steps depending on it.
+     */
+    @Test
+    void graphCompensatesFailingStepInReverseDependencyOrder() {
+        contextRunner.run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+            BranchStep.reset();
+            Saga<String> saga = Saga.<String>builder()
+                    .name("failing-graph")
+                    .requiredStep(List.of(RootStep.class, LeftStep.class, RightStep.class, FailingStep.class))
+                    .stepDependency(Map.of(
+                            LeftStep.class, List.of(RootStep.class),
+                            RightStep.class, List.of(RootStep.class),
+                            FailingStep.class, List.of(LeftStep.class, RightStep.class)))
+                    .payload(SagaPayload.concurrent())
+                    .build();
+
+            assertThatThrownBy(() -> orchestrator.orchestrate(saga, Duration.ofSeconds(3)))
+                    .hasMessageContaining("failed");
+            assertThat(BranchStep.COMPENSATED).hasSize(4);
+            assertThat(BranchStep.COMPENSATED.getFirst()).isEqualTo("FailingStep");
+            assertThat(BranchStep.COMPENSATED.subList(1, 3)).containsExactlyInAnyOrder("LeftStep", "RightStep");
+            assertThat(BranchStep.COMPENSATED.getLast()).isEqualTo("RootStep");
+        });
+    }
+
+    /**
+     * Without dependencies the same steps are compensated the same way, the failing step included.
+     */
+    @Test
+    void sequenceCompensatesFailingStep() {
+        contextRunner.run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+            BranchStep.reset();
+            Saga<String> saga = Saga.<String>builder()
+                    .name("failing-sequence")
+                    .requiredStep(List.of(RootStep.class, FailingStep.class))
+                    .payload(new SagaPayload<>())
+                    .build();
+
+            assertThatThrownBy(() -> orchestrator.orchestrate(saga, Duration.ofSeconds(3)))
+                    .hasMessageContaining("failed");
+            assertThat(BranchStep.COMPENSATED).containsExactly("FailingStep", "RootStep");
+        });
+    }
+
+    @Test
+    void sagasSharingNameKeepTheirOwnPlan() {
+        contextRunner.run(context -> {
+            SagaPlanRegistry registry = context.getBean(SagaPlanRegistry.class);
+            Saga<String> shortSaga = Saga.<String>builder()
+                    .name("shared")
+                    .requiredStep(List.of(FirstStep.class, LastStep.class))
+                    .build();
+            Saga<String> longSaga = Saga.<String>builder()
+                    .name("shared")
+                    .requiredStep(List.of(FirstStep.class, SecondStep.class, LastStep.class))
+                    .build();
+
+            SagaPlan<String> shortPlan = registry.plan(shortSaga);
+            SagaPlan<String> longPlan = registry.plan(longSaga);
+
+            assertThat(shortPlan.getSteps()).hasSize(2);
+            assertThat(longPlan.getSteps()).hasSize(3);
+            assertThat(registry.plan(shortSaga)).isSameAs(shortPlan);
+            assertThat(registry.plan(longSaga)).isSameAs(longPlan);
+        });
+    }
+
+    @Test
+    void rejectConcurrencyBelowOne() {
+        contextRunner.run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+
+            assertThatThrownBy(() -> orchestrator.orchestrateAll(List.of(graphSaga()), 0, Duration.ofSeconds(1)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> orchestrator.<String>subscriber(0, Duration.ofSeconds(1), result -> {
+            })).isInstanceOf(IllegalArgumentException.class);
+        });
+    }
+
+    /**
+     * A timed out saga keeps its permit until its compensation finished.
+     */
+    @Test
+    void orchestrateAllHoldsPermitUntilCompensated() {
+        contextRunner.run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+            CompensatedStep.RUNNING.set(0);
+            CompensatedStep.MAX_RUNNING.set(0);
+            List<Saga<String>> sagas = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                sagas.add(Saga.<String>builder()
+                        .name("timeout")
+                        .requiredStep(List.of(CompensatedStep.class, SlowStep.class))
+                        .payload(new SagaPayload<>())
+                        .build());
+            }
+
+            List<SagaResult<String>> results = orchestrator.orchestrateAll(sagas, 1, Duration.ofMillis(100));
+
+            assertThat(results).allSatisfy(result -> assertThat(result.failure()).isInstanceOf(SagaException.class));
+            assertThat(CompensatedStep.RUNNING).hasValue(0);
+            assertThat(CompensatedStep.MAX_RUNNING).hasValue(1);
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void timedStepRunsOnSagaThread(boolean virtualThreads) {
+        contextRunner.withPropertyValues("pattern.saga.executor.virtual-threads=" + virtualThreads).run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+            Saga<String> saga = Saga.<String>builder()
+                    .name("timed")
+                    .requiredStep(List.of(TimedStep.class, LastStep.class))
+                    .payload(new SagaPayload<>())
+                    .build();
+
+            assertThat(orchestrator.orchestrate(saga, Duration.ofSeconds(3))).isEqualTo("done");
+            assertThat(TimedStep.THREADS).containsExactly(TimedStep.THREADS.getFirst(), TimedStep.THREADS.getFirst());
+            TimedStep.THREADS.clear();
+        });
+    }
+
+    @Test
+    void timedStepFailsWhenTimeoutElapses() {
+        contextRunner.run(context -> {
+            SagaOrchestrator orchestrator = context.getBean(SagaOrchestrator.class);
+            Saga<String> saga = Saga.<String>builder()
+                    .name("slow")
+                    .requiredStep(List.of(SlowTimedStep.class, LastStep.class))
+                    .payload(new SagaPayload<>())
+                    .build();
+            long start = System.nanoTime();
+
+            assertThatThrownBy(() -> orchestrator.orchestrate(saga, Duration.ofSeconds(3)))
+                    .hasMessageContaining("timed out");
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+            assertThat(Thread.currentThread().isInterrupted()).isFalse();
+        });
+    }
+
+    private static Saga<String> graphSaga() {
+        return Saga.<String>builder()
+                .name("graph")
+                .requiredStep(List.of(FirstStep.class, SecondStep.class, LastStep.class))
+                .stepDependency(Map.of(LastStep.class, List.of(FirstStep.class, SecondStep.class)))
+                .payload(SagaPayload.concurrent())
+                .build();
+    }
+
+    abstract static class TestStep implements SagaStep<String> {
+        @Override
+        public String getName() {
+            return getClass().getSimpleName();
+        }
+
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return payload -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+
+        @Override
+        public SagaStepCompensator<String> getCompensator() {
+            return null;
+        }
+    }
+
+    static class FirstStep extends TestStep {
+    }
+
+    static class SecondStep extends TestStep {
+    }
+
+    static class CompensatedStep extends TestStep {
+        static final AtomicInteger RUNNING = new AtomicInteger();
+        static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return payload -> MAX_RUNNING.accumulateAndGet(RUNNING.incrementAndGet(), Math::max);
+        }
+
+        @Override
+        public SagaStepCompensator<String> getCompensator() {
+            return payload -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                RUNNING.decrementAndGet();
+            };
+        }
+    }
+
+    static class SlowStep extends TestStep {
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return payload -> {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+    }
+
+    /**
+     * Records the thread of its handler and of the step before it
+     */
+    static class TimedStep extends TestStep {
+        static final List<Thread> THREADS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return payload -> THREADS.add(Thread.currentThread());
+        }
+
+        @Override
+        public SagaStepCompensator<String> getCompensator() {
+            return payload -> {
+            };
+        }
+
+        @Override
+        public Duration getTimeout() {
+            return Duration.ofMillis(500);
+        }
+    }
+
+    static class SlowTimedStep extends TestStep {
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return new SlowStep().getHandler();
+        }
+
+        @Override
+        public Duration getTimeout() {
+            return Duration.ofMillis(100);
+        }
+    }
+
+    /**
+     * Records its compensation. Left and right branches wait for each other before completing.
+     */
+    abstract static class BranchStep extends TestStep {
+        static final List<String> COMPENSATED = new CopyOnWriteArrayList<>();
+        static volatile CountDownLatch branches;
+
+        static void reset() {
+            COMPENSATED.clear();
+            branches = new CountDownLatch(2);
+        }
+
+        @Override
+        public SagaStepCompensator<String> getCompensator() {
+            return payload -> COMPENSATED.add(getName());
+        }
+    }
+
+    static class RootStep extends BranchStep {
+    }
+
+    static class LeftStep extends BranchStep {
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return payload -> awaitOtherBranch();
+        }
+    }
+
+    static class RightStep extends BranchStep {
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return payload -> awaitOtherBranch();
+        }
+    }
+
+    static class FailingStep extends BranchStep {
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return payload -> {
+                throw new IllegalStateException("Step failed");
+            };
+        }
+    }
+
+    private static void awaitOtherBranch() {
+        BranchStep.branches.countDown();
+        try {
+            if (!BranchStep.branches.await(1, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Branches did not overlap");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static class LastStep extends TestStep {
+        @Override
+        public SagaStepHandler<String> getHandler() {
+            return payload -> {
+                TimedStep.THREADS.add(Thread.currentThread());
+                payload.setResult("done");
+            };
+        }
+    }
+}
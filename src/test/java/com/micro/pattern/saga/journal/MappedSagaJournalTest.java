@@ -0,0 +1,151 @@
+package com.micro.pattern.saga.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedSagaJournalTest {
+    private static final int SEGMENT_SIZE = 256;
+    private static final String STEP = "com.micro.Step";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Byte.BYTES + 2 * Long.BYTES + 2 * Short.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayReportsUnfinishedSagas() {
+        UUID finished = UUID.randomUUID();
+        UUID unfinished = UUID.randomUUID();
+        try (MappedSagaJournal journal = open()) {
+            journal.append(new SagaJournalRecord(finished, "order", SagaJournalRecord.Event.SAGA_STARTED, null));
+            journal.append(new SagaJournalRecord(unfinished, "order", SagaJournalRecord.Event.SAGA_STARTED, null));
+            journal.append(new SagaJournalRecord(unfinished, "order", SagaJournalRecord.Event.STEP_STARTED, STEP));
+            journal.append(new SagaJournalRecord(unfinished, "order", SagaJournalRecord.Event.STEP_COMPLETED, STEP));
+            journal.append(new SagaJournalRecord(finished, "order", SagaJournalRecord.Event.SAGA_COMPLETED, null));
+        }
+
+        try (MappedSagaJournal journal = open()) {
+            assertThat(journal.unfinished()).singleElement().satisfies(saga -> {
+                assertThat(saga.key()).isEqualTo(unfinished);
+                assertThat(saga.name()).isEqualTo("order");
+                assertThat(saga.startedSteps()).containsExactly(STEP);
+                assertThat(saga.completedSteps()).containsExactly(STEP);
+            });
+        }
+    }
+
+    @Test
+    void appendWithoutSagaName() {
+        UUID key = UUID.randomUUID();
+        try (MappedSagaJournal journal = open()) {
+            journal.append(new SagaJournalRecord(key, null, SagaJournalRecord.Event.SAGA_STARTED, null));
+        }
+
+        try (MappedSagaJournal journal = open()) {
+            assertThat(journal.unfinished()).singleElement().satisfies(saga -> assertThat(saga.name()).isEmpty());
+        }
+    }
+
+    @Test
+    void appendRejectsNameLongerThanShort() {
+        try (MappedSagaJournal journal = open()) {
+            SagaJournalRecord record = new SagaJournalRecord(UUID.randomUUID(), "s".repeat(Short.MAX_VALUE + 1),
+                    SagaJournalRecord.Event.SAGA_STARTED, null);
+
+            assertThatThrownBy(() -> journal.append(record)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void rollReclaimsSegmentsOfFinishedSagas() throws IOException {
+        UUID pinned = UUID.randomUUID();
+        try (MappedSagaJournal journal = open()) {
+            for (int i = 0; i < 100; i++) {
+                UUID key = UUID.randomUUID();
+                journal.append(new SagaJournalRecord(key, "s", SagaJournalRecord.Event.SAGA_STARTED, null));
+                journal.append(new SagaJournalRecord(key, "s", SagaJournalRecord.Event.SAGA_COMPLETED, null));
+            }
+            assertThat(segments()).hasSizeLessThanOrEqualTo(2);
+
+            journal.append(new SagaJournalRecord(pinned, "s", SagaJournalRecord.Event.SAGA_STARTED, null));
+            for (int i = 0; i < 100; i++) {
+                UUID key = UUID.randomUUID();
+                journal.append(new SagaJournalRecord(key, "s", SagaJournalRecord.Event.SAGA_STARTED, null));
+                journal.append(new SagaJournalRecord(key, "s", SagaJournalRecord.Event.SAGA_COMPLETED, null));
+            }
+            assertThat(segments()).hasSizeGreaterThan(2);
+
+            journal.append(new SagaJournalRecord(pinned, "s", SagaJournalRecord.Event.STEP_STARTED, STEP));
+        }
+
+        try (MappedSagaJournal journal = open()) {
+            assertThat(journal.unfinished()).singleElement().satisfies(saga -> {
+                assertThat(saga.key()).isEqualTo(pinned);
+                assertThat(saga.startedSteps()).containsExactly(STEP);
+            });
+        }
+    }
+
+    @Test
+    void replayStopsAtCorruptNameLength() throws IOException {
+        UUID key = UUID.randomUUID();
+        try (MappedSagaJournal journal = open()) {
+            journal.append(new SagaJournalRecord(key, "order", SagaJournalRecord.Event.SAGA_STARTED, null));
+            journal.append(new SagaJournalRecord(key, "order", SagaJournalRecord.Event.STEP_STARTED, STEP));
+        }
+        Path segment = segments()[0];
+        // Saga name length of the second record
+        int secondRecord = HEADER_SIZE + "order".length();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Short.BYTES).putShort(0, (short) -1),
+                    secondRecord + 2 * Integer.BYTES + Byte.BYTES + 2 * Long.BYTES);
+        }
+
+        try (MappedSagaJournal journal = open()) {
+            assertThat(journal.unfinished()).singleElement().satisfies(saga -> {
+                assertThat(saga.key()).isEqualTo(key);
+                assertThat(saga.startedSteps()).isEmpty();
+            });
+        }
+    }
+
+    /**
+     * A crash can leave a record length on disk without its body, which must not replay as a saga of key zero.
+     */
+    @Test
+    void replayIgnoresTornRecord() throws IOException {
+        UUID key = UUID.randomUUID();
+        try (MappedSagaJournal journal = open()) {
+            journal.append(new SagaJournalRecord(key, "order", SagaJournalRecord.Event.SAGA_STARTED, null));
+        }
+        try (FileChannel channel = FileChannel.open(segments()[0], StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, HEADER_SIZE), HEADER_SIZE + "order".length());
+        }
+
+        try (MappedSagaJournal journal = open()) {
+            assertThat(journal.unfinished()).singleElement().satisfies(saga -> assertThat(saga.key()).isEqualTo(key));
+        }
+    }
+
+    private MappedSagaJournal open() {
+        return new MappedSagaJournal(directory, SEGMENT_SIZE, Duration.ofSeconds(1));
+    }
+
+    private Path[] segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toArray(Path[]::new);
+        }
+    }
+}
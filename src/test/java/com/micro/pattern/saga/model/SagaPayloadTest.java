@@ -0,0 +1,57 @@
+package com.micro.pattern.saga.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SagaPayloadTest {
+    private static final SagaPayloadKey<String> NAME = new SagaPayloadKey<>("name", String.class);
+    private static final SagaPayloadKey<Integer> COUNT = new SagaPayloadKey<>("count", Integer.class);
+
+    static Stream<SagaPayload<String>> payloads() {
+        return Stream.of(new SagaPayload<>(), SagaPayload.concurrent());
+    }
+
+    @ParameterizedTest
+    @MethodSource("payloads")
+    void addAndReplaceProperties(SagaPayload<String> payload) {
+        for (int i = 0; i < 10; i++) {
+            payload.addProperty(new SagaPayloadKey<>("key" + i, Integer.class), i);
+        }
+        payload.addProperty(NAME, "first");
+        payload.addProperty(new SagaPayloadKey<>("name", String.class), "second");
+        payload.addProperty(COUNT, null);
+
+        assertThat(payload.getProperty(NAME)).isEqualTo("second");
+        assertThat(payload.getProperty(new SagaPayloadKey<>("key9", Integer.class))).isEqualTo(9);
+        assertThat(payload.hasProperty(COUNT)).isTrue();
+        assertThat(payload.getProperty(COUNT)).isNull();
+        assertThat(payload.hasProperty(new SagaPayloadKey<>("missing", String.class))).isFalse();
+    }
+
+    /**
+     * Values are read without {@link Class#cast}: a key declared with the wrong type fails where the value is used.
+     */
+    @ParameterizedTest
+    @MethodSource("payloads")
+    void mismatchedKeyTypeFailsWhereValueIsUsed(SagaPayload<String> payload) {
+        payload.addProperty(NAME, "value");
+
+        assertThatThrownBy(() -> {
+            Integer value = payload.getProperty(new SagaPayloadKey<>("name", Integer.class));
+        }).isInstanceOf(ClassCastException.class);
+    }
+
+    @Test
+    void keysWithSameIdShareSlot() {
+        assertThat(new SagaPayloadKey<>("name", Integer.class).slot()).isEqualTo(NAME.slot());
+        assertThat(COUNT.slot()).isNotEqualTo(NAME.slot());
+        assertThatThrownBy(() -> new SagaPayloadKey<>("name", String.class, COUNT.slot()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}